@@ -0,0 +1,59 @@
+package com.soham.ytchat;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a capture as fast as possible through the poll parser: mmap read, inflate
+ * and parse per record. Same input every run, so it doubles as a deterministic
+ * end-to-end parse test. Point -Dytchat.capture at a real capture to use that instead.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CaptureReplayBenchmark {
+
+    @Param({"typical"})
+    public String size;
+
+    private Path file;
+    private boolean generated;
+    private long messages;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        String recorded = System.getProperty("ytchat.capture");
+        if (recorded != null) {
+            file = Path.of(recorded);
+            return;
+        }
+
+        // 200 polls of a stream, 5 s apart, like a busy hour compressed
+        generated = true;
+        file = Files.createTempFile("ytchat-bench", ".ytcap");
+        try (ChatCapture.Writer w = new ChatCapture.Writer(file)) {
+            int actions = LiveChatFixtures.actionsFor(size);
+            for (int i = 0; i < 200; i++) {
+                w.append("1", 1_700_000_000_000L + i * 5_000L, 120, LiveChatFixtures.response(actions, i));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (generated) Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long replay() throws Exception {
+        messages = 0;
+        ChatReplay.run(file, 0, c -> messages++);
+        return messages;
+    }
+}
@@ -0,0 +1,84 @@
+package com.soham.ytchat;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the poll thread pays per message for keyword and author filtering, for a short
+ * list and a large imported one. Terms are random made-up words, a tenth of them with a
+ * wildcard; one author rule applies to everyone, as a link blocker would:
+ * ./gradlew jmh -Pjmh.include=ChatFilter
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ChatFilterBenchmark {
+
+    @Param({"100", "20000"})
+    public int terms;
+
+    /** clean: nothing matches, the whole text is scanned; blocked: a term near the end. */
+    @Param({"clean", "blocked"})
+    public String text;
+
+    private static final String[] WORDS = {
+            "gg", "W", "lol", "that", "was", "insane", "no", "way", "how", "did", "he", "survive",
+            "build", "a", "castle", "next", "chat", "is", "fast", "today", "hi", "from", "brazil"
+    };
+
+    private static final List<String> RULES = List.of("*:https?://\\S+");
+
+    private List<String> list;
+    private ChatFilter filter;
+    private Chat[] messages;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random rnd = new Random(42);
+        list = new ArrayList<>(terms);
+        for (int i = 0; i < terms; i++) {
+            String w = word(rnd);
+            int wildcard = rnd.nextInt(20);
+            list.add(wildcard == 0 ? "*" + w : wildcard == 1 ? w + "*" : w);
+        }
+        filter = ChatFilter.compile(list, RULES);
+
+        Author author = new Author("Steve", "UCsteve");
+        messages = new Chat[64];
+        for (int i = 0; i < messages.length; i++) {
+            StringBuilder sb = new StringBuilder();
+            while (sb.length() < 60) sb.append(WORDS[rnd.nextInt(WORDS.length)]).append(' ');
+            if (text.equals("blocked")) sb.append(list.get(rnd.nextInt(list.size())).replace("*", ""));
+            else if (!text.equals("clean")) throw new IllegalArgumentException("Unknown text kind: " + text);
+            messages[i] = new Chat(Integer.toString(i), Chat.Kind.TEXT, author, sb.toString(), 0, "");
+        }
+    }
+
+    /** Eight to twelve letters, long enough never to collide with the chat words above. */
+    private static String word(Random rnd) {
+        char[] c = new char[8 + rnd.nextInt(5)];
+        for (int i = 0; i < c.length; i++) c[i] = (char) ('a' + rnd.nextInt(26));
+        return new String(c);
+    }
+
+    @Benchmark
+    public boolean blocks() {
+        return filter.blocks(messages[next++ & (messages.length - 1)]);
+    }
+
+    /** Rebuilding the filter after a config change; runs off-thread in game. */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ChatFilter compile() {
+        return ChatFilter.compile(list, RULES);
+    }
+}
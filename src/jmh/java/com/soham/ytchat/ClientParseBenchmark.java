@@ -0,0 +1,105 @@
+package com.soham.ytchat;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The YouTubeLiveChatClient parse helpers one at a time, over small / typical / flood
+ * fixtures, so a regression shows up in the method that caused it. No Minecraft needed:
+ * ./gradlew jmh -Pjmh.include=ClientParse
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ClientParseBenchmark {
+
+    @Param({"small", "typical", "flood"})
+    public String size;
+
+    private String page;
+    private JsonObject root;
+    private JsonObject initialData;
+    private JsonArray[] runs;
+
+    private YouTubeLiveChatClient client;
+    private Consumer<Chat> sink;
+    private Chat last;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int actions = LiveChatFixtures.actionsFor(size);
+
+        page = LiveChatFixtures.page(actions, 42);
+        root = JsonParser.parseString(new String(LiveChatFixtures.response(actions, 42), StandardCharsets.UTF_8))
+                .getAsJsonObject();
+        // Same shape the page fallback walks: ytInitialData.contents.liveChatRenderer
+        String json = page.substring(page.indexOf("var ytInitialData = ") + 20, page.lastIndexOf("};") + 1);
+        initialData = JsonParser.parseString(json).getAsJsonObject();
+        runs = collectRuns(root);
+
+        // Window sized to the fixture so reset() between ops stays cheap
+        client = new YouTubeLiveChatClient(null, new MessageDeduper(actions, 0));
+        sink = c -> last = c;
+    }
+
+    @Benchmark
+    public boolean tryExtractTokens() {
+        client.reset();
+        return client.tryExtractTokens(page);
+    }
+
+    // What initFromStreamUrl actually runs now, for comparison with the line above
+    @Benchmark
+    public Object pageTokenScanner() throws Exception {
+        return PageTokenScanner.scan(new StringReader(page));
+    }
+
+    @Benchmark
+    public Chat extractMessages() {
+        client.reset();
+        client.extractMessages(root, sink);
+        return last;
+    }
+
+    @Benchmark
+    public Object extractNextContinuation() {
+        return client.extractNextContinuation(root);
+    }
+
+    @Benchmark
+    public void concatRunsText(Blackhole bh) {
+        for (JsonArray r : runs) bh.consume(YouTubeLiveChatClient.concatRunsText(r));
+    }
+
+    @Benchmark
+    public String deepFindFirstContinuation() {
+        return YouTubeLiveChatClient.deepFindFirstContinuation(initialData);
+    }
+
+    private static JsonArray[] collectRuns(JsonObject root) {
+        List<JsonArray> out = new ArrayList<>();
+        JsonArray actions = root.getAsJsonObject("continuationContents")
+                .getAsJsonObject("liveChatContinuation").getAsJsonArray("actions");
+        for (JsonElement a : actions) {
+            JsonObject add = a.getAsJsonObject().getAsJsonObject("addChatItemAction");
+            if (add == null) continue;
+            JsonObject msg = add.getAsJsonObject("item").getAsJsonObject("liveChatTextMessageRenderer");
+            if (msg != null) out.add(msg.getAsJsonObject("message").getAsJsonArray("runs"));
+        }
+        return out.toArray(new JsonArray[0]);
+    }
+}
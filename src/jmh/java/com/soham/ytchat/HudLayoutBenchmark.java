@@ -0,0 +1,129 @@
+package com.soham.ytchat;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The HUD panel without a client: wrapping a new message into a full ring, re-wrapping
+ * everything after a resize, publishing a snapshot, and laying out one frame. Glyph
+ * widths come from {@link FakeTextMetrics}, so this runs on a headless box:
+ * ./gradlew jmh -Pjmh.include=HudLayout
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HudLayoutBenchmark {
+
+    @Param({"30", "100", "500"})
+    public int entries;
+
+    /** short: typical one-liners; long: messages near the 200-char limit; cjk: Japanese, Korean, Chinese and emoji. */
+    @Param({"short", "long", "cjk"})
+    public String text;
+
+    private static final String[] SHORT = {
+            "gg", "W", "lol", "that was insane", "no way", "first", "how did he survive that",
+            "build a castle next", "chat is fast today", "hi from brazil"
+    };
+    private static final String[] CJK = {
+            "草生えるwww", "ナイス！それな", "今日の配信めっちゃ楽しい😂😂", "대박 ㅋㅋㅋㅋ 진짜 미쳤다",
+            "这个操作太秀了吧👍👍👍", "👨‍👩‍👧‍👦❤️🔥🔥", "おつかれさまでした～また明日ね🌙",
+            "一起来玩吧 let's go 🎮", "かわいい💕かわいい💕かわいい💕", "8888888888888888"
+    };
+    private static final String[] AUTHORS = {
+            "Steve: ", "Alex: ", "xX_Creeper_Xx: ", "NotchFan2009: ", "redstone_wizard: ", "ゆっくり実況: "
+    };
+
+    private final TextMetrics metrics = new FakeTextMetrics();
+    private final CountingSink sink = new CountingSink();
+    private String[] messages;
+    private ChatLayout layout;
+    private ChatLayout.Snapshot snap;
+    private int next;
+    private boolean narrow;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random rnd = new Random(42);
+        messages = new String[256];
+        for (int i = 0; i < messages.length; i++) messages[i] = message(rnd);
+
+        layout = new ChatLayout(entries, metrics, ChatLayout.WRAP_W);
+        for (int i = 0; i < entries; i++) push();
+        snap = layout.snapshot("Chat");
+    }
+
+    private String message(Random rnd) {
+        return switch (text) {
+            case "short" -> SHORT[rnd.nextInt(SHORT.length)];
+            case "cjk" -> CJK[rnd.nextInt(CJK.length)];
+            case "long" -> {
+                StringBuilder sb = new StringBuilder();
+                while (sb.length() < 180) sb.append(SHORT[rnd.nextInt(SHORT.length)]).append(' ');
+                // One unbroken run, like a pasted link, that has to be split mid-word
+                if (rnd.nextBoolean()) sb.append("https://example.com/watch?v=").append("x".repeat(40));
+                yield sb.toString();
+            }
+            default -> throw new IllegalArgumentException("Unknown text kind: " + text);
+        };
+    }
+
+    private long push() {
+        int i = next++ & (messages.length - 1);
+        return layout.push(AUTHORS[i % AUTHORS.length], messages[i], 0xFF66CCFF, null);
+    }
+
+    /** One message arriving while the ring is full: wrap, evict the oldest, append. */
+    @Benchmark
+    public long pushMessage() {
+        return push();
+    }
+
+    /** A window resize or GUI scale change: every entry is wrapped again. */
+    @Benchmark
+    public void resize(Blackhole bh) {
+        narrow = !narrow;
+        layout.relayout(metrics, narrow ? ChatLayout.WRAP_W - 48 : ChatLayout.WRAP_W);
+        bh.consume(layout);
+    }
+
+    /** What the tick publishes after any change. */
+    @Benchmark
+    public ChatLayout.Snapshot snapshot() {
+        return layout.snapshot("Chat");
+    }
+
+    /** One immediate-mode frame, minus the draw calls themselves. */
+    @Benchmark
+    public int emitPanel() {
+        sink.n = 0;
+        ChatLayout.emitPanel(sink, snap, 854, metrics.lineHeight());
+        return sink.n;
+    }
+
+    /** Stands in for GuiGraphics: touches every argument so nothing is optimized away. */
+    private static final class CountingSink implements ChatLayout.PanelSink {
+        int n;
+
+        @Override
+        public void fill(int x0, int y0, int x1, int y1, int color) {
+            n += x0 ^ y0 ^ x1 ^ y1 ^ color;
+        }
+
+        @Override
+        public void title(String text, int x, int y) {
+            n += text.length() + x + y;
+        }
+
+        @Override
+        public void line(String text, int x, int y, int color) {
+            n += text.length() + x + y + color;
+        }
+    }
+}
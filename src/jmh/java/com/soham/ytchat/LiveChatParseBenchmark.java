@@ -0,0 +1,63 @@
+package com.soham.ytchat;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Streaming get_live_chat parsing vs. the old String + JsonParser tree walk.
+ * Run with the GC profiler (./gradlew jmh -Pjmh.include=LiveChatParse) to see gc.alloc.rate.norm.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LiveChatParseBenchmark {
+
+    @Param({"20", "200", "1000"})
+    public int actions;
+
+    private byte[] body;
+    private YouTubeLiveChatClient client;
+    private ChatRingBuffer out;
+    private Consumer<Chat> sink;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        body = LiveChatFixtures.response(actions, 42);
+        client = new YouTubeLiveChatClient();
+        out = new ChatRingBuffer(4096, ChatRingBuffer.OverflowPolicy.DROP_NEWEST);
+        sink = out::offer;
+    }
+
+    @Benchmark
+    public Object treeWalk(Blackhole bh) {
+        client.reset();
+        out.clear();
+
+        // What pollOnce used to do: buffer as a String, build the tree, walk it
+        String json = new String(body, StandardCharsets.UTF_8);
+        JsonObject root = JsonParser.parseString(json).getAsJsonObject();
+        client.extractMessages(root, sink);
+        bh.consume(out.size());
+        return client.extractNextContinuation(root);
+    }
+
+    @Benchmark
+    public Object streaming(Blackhole bh) throws Exception {
+        client.reset();
+        out.clear();
+
+        client.consumeResponse(new ByteArrayInputStream(body), sink);
+        bh.consume(out.size());
+        return client.getServerTimeoutMs();
+    }
+}
@@ -0,0 +1,31 @@
+package com.soham.ytchat;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/** extractVideoId over the URL shapes people actually paste into the config screen. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VideoIdBenchmark {
+
+    private final String[] urls = {
+            "https://www.youtube.com/watch?v=jfKfPfyJRdk",
+            "https://www.youtube.com/watch?app=desktop&v=jfKfPfyJRdk&t=42s&ab_channel=LofiGirl",
+            "https://youtu.be/jfKfPfyJRdk",
+            "https://www.youtube.com/live/jfKfPfyJRdk?si=Q2hhdH5abTlv",
+            "https://www.youtube.com/live_chat?is_popout=1&v=jfKfPfyJRdk",
+            "  https://m.youtube.com/watch?v=jfKfPfyJRdk  ",
+            "not a url at all"
+    };
+
+    @Benchmark
+    public void extractVideoId(Blackhole bh) {
+        for (String u : urls) bh.consume(YouTubeLiveChatClient.extractVideoId(u));
+    }
+}
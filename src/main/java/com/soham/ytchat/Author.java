@@ -0,0 +1,60 @@
+package com.soham.ytchat;
+
+/**
+ * A chat author with everything the HUD needs worked out once: the trimmed display
+ * name, the "name: " prefix and the name color. Clients hand out shared instances
+ * through {@link AuthorCache}, so the same regulars cost nothing per message.
+ */
+public final class Author {
+
+    /** Author of local status lines. */
+    public static final Author SYSTEM = new Author("YTCHAT", null);
+
+    private final String name;
+    private final String channelId;
+    private final String prefix;
+    private final int color;
+
+    Author(String name, String channelId) {
+        this.name = name;
+        this.channelId = channelId;
+        this.prefix = name + ": ";
+        this.color = colorFor(name);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /** YouTube channel ID (authorExternalChannelId), or null if the response had none. */
+    public String channelId() {
+        return channelId;
+    }
+
+    /** {@code name + ": "}, as shown in front of the message. */
+    public String prefix() {
+        return prefix;
+    }
+
+    public int color() {
+        return color;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    // Simple stable username colors (Twitch-ish vibe)
+    static int colorFor(String name) {
+        int h = name.hashCode();
+        // generate a bright-ish color
+        int r = 120 + (Math.abs(h) % 100);
+        int g = 120 + (Math.abs(h / 7) % 100);
+        int b = 120 + (Math.abs(h / 13) % 100);
+        r = Math.min(255, r);
+        g = Math.min(255, g);
+        b = Math.min(255, b);
+        return (0xFF << 24) | (r << 16) | (g << 8) | b;
+    }
+}
@@ -0,0 +1,39 @@
+package com.soham.ytchat;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded intern table of {@link Author}s for one client, keyed by channel ID when the
+ * response has one and by name otherwise. Least recently seen authors are evicted
+ * first. Not thread-safe; a client only parses one response at a time.
+ */
+final class AuthorCache {
+
+    private final LinkedHashMap<String, Author> map;
+
+    AuthorCache(int capacity) {
+        this.map = new LinkedHashMap<>(Math.min(capacity, 1024) * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Author> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /** The shared author for this name and channel. */
+    Author intern(String name, String channelId) {
+        String display = name.strip();
+        String key = (channelId != null) ? channelId : display;
+        Author a = map.get(key);
+        // A channel can rename itself mid-stream
+        if (a != null && a.name().equals(display)) return a;
+        a = new Author(display, channelId);
+        map.put(key, a);
+        return a;
+    }
+
+    int size() {
+        return map.size();
+    }
+}
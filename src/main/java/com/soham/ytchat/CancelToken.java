@@ -0,0 +1,63 @@
+package com.soham.ytchat;
+
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cancellation for everything one scraper session started. The service cancels the old
+ * token on restart, which aborts any request or body read still in flight (see
+ * {@link HttpTransport#send}), so nothing from the old URLs outlives the switch.
+ */
+final class CancelToken {
+
+    /** For callers without a session (benchmarks, soak test, replay); never cancelled. */
+    static final CancelToken NONE = new CancelToken();
+
+    private final Set<Runnable> hooks = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    // Set on child tokens only
+    private CancelToken parent;
+    private final Runnable parentHook = this::cancel;
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    void cancel() {
+        if (this == NONE) return;
+        cancelled = true;
+        for (Runnable r : hooks) {
+            // remove() wins against a concurrent removeHook, so each hook runs at most once
+            if (hooks.remove(r)) r.run();
+        }
+    }
+
+    /** Run {@code hook} on cancel, or right away if already cancelled. */
+    void onCancel(Runnable hook) {
+        hooks.add(hook);
+        if (cancelled && hooks.remove(hook)) hook.run();
+    }
+
+    void removeHook(Runnable hook) {
+        hooks.remove(hook);
+    }
+
+    /** A token that is also cancelled when this one is. Call {@link #release} when its work is over. */
+    CancelToken child() {
+        CancelToken c = new CancelToken();
+        c.parent = this;
+        onCancel(c.parentHook);
+        return c;
+    }
+
+    /** Unlink a {@link #child} from its parent. */
+    void release() {
+        if (parent != null) parent.removeHook(parentHook);
+    }
+
+    void throwIfCancelled() {
+        if (cancelled) throw new CancellationException("Chat session was restarted");
+    }
+}
@@ -0,0 +1,144 @@
+package com.soham.ytchat;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * Fills the gap after a reconnect. Each stream remembers the newest message it has shown.
+ * The first polls after an outage (or after a restart that resumed a cached session) are
+ * then treated as backfill. Messages at or before the remembered one are skipped. The
+ * rest are held, page by page, until a response reaches the present. Then at most
+ * {@code backfillMaxMessages} of them, the newest, are released together.
+ *
+ * The live endpoint cannot seek. A still-valid continuation returns everything since it;
+ * a fresh one only carries the recent backlog. That backlog reached back if it held the
+ * remembered message or anything older, including messages the client's deduper already
+ * dropped as seen. When it did not, a status line says how much could not be recovered.
+ *
+ * Only touched by the poll in flight.
+ */
+final class CatchUp {
+
+    // A page whose newest message is this close to the poll is the present, not backlog
+    private static final long PRESENT_MS = 5_000;
+    // Pages fetched back to back before giving up on reaching the present
+    private static final int MAX_PAGES = 20;
+
+    private final String label;
+
+    private String lastId;
+    private long lastMs;
+
+    // Non-null while catching up
+    private ArrayDeque<Chat> held;
+    private int cap;
+    private int dropped;
+    private int pages;
+    private boolean reachedBack;
+    private long oldestHeldMs;
+
+    CatchUp(String label) {
+        this.label = label;
+    }
+
+    String lastId() {
+        return lastId;
+    }
+
+    long lastMs() {
+        return lastMs;
+    }
+
+    /** Pick up where a cached session left off. */
+    void restore(String id, long ms) {
+        if (ms > lastMs) {
+            lastId = id;
+            lastMs = ms;
+        }
+    }
+
+    /**
+     * The next poll starts after a gap. No-op before anything was seen or while already catching up.
+     * @param continuous whether that poll continues the continuation the last shown message came
+     *        from, so nothing in between can be missing
+     */
+    void begin(int maxMessages, boolean continuous) {
+        if (lastMs == 0 || held != null) return;
+        held = new ArrayDeque<>();
+        cap = maxMessages;
+        dropped = 0;
+        pages = 0;
+        reachedBack = continuous;
+        oldestHeldMs = 0;
+    }
+
+    boolean active() {
+        return held != null;
+    }
+
+    /**
+     * Route one poll's messages: straight to {@code out} normally, into the backfill while
+     * catching up. {@code out} gets the backfill and a summary line once it is complete.
+     * @param overlapped whether the client dropped messages of this poll as already seen
+     * @param more whether the server handed out a next continuation
+     */
+    void accept(List<Chat> got, boolean overlapped, long polledAtMs, boolean more, List<Chat> out) {
+        long newestMs = 0;
+        for (Chat c : got) newestMs = Math.max(newestMs, c.timestampMs());
+
+        if (held == null) {
+            out.addAll(got);
+            remember(got);
+            return;
+        }
+
+        pages++;
+        if (overlapped) reachedBack = true;
+        for (Chat c : got) {
+            long ts = c.timestampMs();
+            if (ts > 0 && (ts < lastMs || (ts == lastMs && c.id() != null && c.id().equals(lastId)))) {
+                reachedBack = true;
+                continue;
+            }
+            if (ts > 0 && (oldestHeldMs == 0 || ts < oldestHeldMs)) oldestHeldMs = ts;
+            held.addLast(c);
+            // Keep the newest; a long outage must not bury the HUD in stale chat
+            if (held.size() > cap) {
+                held.removeFirst();
+                dropped++;
+            }
+        }
+
+        boolean present = got.isEmpty() || newestMs >= polledAtMs - PRESENT_MS;
+        if (present || !more || pages >= MAX_PAGES) finish(out);
+    }
+
+    private void finish(List<Chat> out) {
+        int n = held.size();
+        if (n > 0) {
+            String line = "Caught up on " + n + " missed message" + (n == 1 ? "" : "s");
+            if (dropped > 0) line += " (" + dropped + " older skipped)";
+            out.add(Chat.status(line + ".", label));
+        } else if (dropped > 0) {
+            // backfillMaxMessages is 0: nothing is replayed
+            out.add(Chat.status("Skipped " + dropped + " message" + (dropped == 1 ? "" : "s") + " from the outage.", label));
+        }
+        if (!reachedBack && oldestHeldMs > lastMs) {
+            long gapS = Math.max(1, (oldestHeldMs - lastMs) / 1000);
+            out.add(Chat.status("Up to " + gapS + "s of chat from the outage could not be recovered.", label));
+        }
+        List<Chat> backfill = List.copyOf(held);
+        out.addAll(backfill);
+        remember(backfill);
+        held = null;
+    }
+
+    private void remember(List<Chat> shown) {
+        for (Chat c : shown) {
+            if (c.timestampMs() >= lastMs && c.timestampMs() > 0) {
+                lastMs = c.timestampMs();
+                lastId = c.id();
+            }
+        }
+    }
+}
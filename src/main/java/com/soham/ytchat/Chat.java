@@ -1,3 +1,29 @@
 package com.soham.ytchat;
 
-public record Chat(String author, String chat) {}
+/**
+ * One chat line. {@code id} is the renderer's message ID (null for local status lines).
+ * {@code timestampMs} is the server send time (epoch millis), or 0 for status lines.
+ * {@code source} is the label of the stream it came from, or null for lines that
+ * aren't tied to a stream.
+ */
+public record Chat(String id, Kind kind, Author author, String chat, long timestampMs, String source) {
+
+    public enum Kind {
+        /** A plain chat message. */
+        TEXT,
+        /** A Super Chat; the text starts with the amount. */
+        PAID,
+        /** A new or returning member. */
+        MEMBERSHIP,
+        /** A local line from the mod itself. */
+        STATUS
+    }
+
+    public static Chat status(String text) {
+        return status(text, null);
+    }
+
+    public static Chat status(String text, String source) {
+        return new Chat(null, Kind.STATUS, Author.SYSTEM, text, 0L, source);
+    }
+}
@@ -0,0 +1,209 @@
+package com.soham.ytchat;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Append-only capture of raw get_live_chat responses, for replaying a session offline.
+ *
+ * File layout (big-endian):
+ * <pre>
+ *   header:  "YTCHATC1"
+ *   record:  int compressedLen, int rawLen, long atMs, int latencyMs,
+ *            short sourceLen, byte[sourceLen] source (UTF-8),
+ *            byte[compressedLen] body (zlib)
+ * </pre>
+ * Every record is compressed on its own, so a reader can start anywhere and a crash
+ * mid-write only loses the last record, which the reader treats as end of file. The
+ * writer cuts such a torn record off before appending to an existing capture.
+ */
+final class ChatCapture {
+
+    private static final byte[] MAGIC = "YTCHATC1".getBytes(StandardCharsets.US_ASCII);
+    private static final int RECORD_HEADER = 4 + 4 + 8 + 4 + 2;
+
+    private ChatCapture() {}
+
+    /** One captured response. */
+    record Record(String source, long atMs, int latencyMs, byte[] body) {}
+
+    /** Appends records; safe to share between streams. */
+    static final class Writer implements Closeable {
+        private final FileChannel ch;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private byte[] out = new byte[64 * 1024];
+        private long records;
+
+        Writer(Path file) throws IOException {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            // Not APPEND: the existing records are checked first, so the channel has to read too
+            this.ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                if (ch.size() == 0) {
+                    writeFully(ByteBuffer.wrap(MAGIC));
+                } else {
+                    // Records after a torn one would be read as part of it
+                    long end = completeEnd(ch, file);
+                    if (end < ch.size()) ch.truncate(end);
+                    ch.position(end);
+                }
+            } catch (IOException e) {
+                ch.close();
+                throw e;
+            }
+        }
+
+        /** Where the last complete record of an existing capture ends. */
+        private static long completeEnd(FileChannel ch, Path file) throws IOException {
+            long size = ch.size();
+            ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+            while (magic.hasRemaining() && ch.read(magic, magic.position()) >= 0) {}
+            if (magic.hasRemaining() || !Arrays.equals(magic.array(), MAGIC)) {
+                throw new IOException("Not a chat capture, not appending to it: " + file);
+            }
+
+            ByteBuffer head = ByteBuffer.allocate(RECORD_HEADER);
+            long pos = MAGIC.length;
+            while (size - pos >= RECORD_HEADER) {
+                head.clear();
+                while (head.hasRemaining() && ch.read(head, pos + head.position()) >= 0) {}
+                int compressedLen = head.getInt(0);
+                int rawLen = head.getInt(4);
+                int sourceLen = head.getShort(20) & 0xFFFF;
+                long next = pos + RECORD_HEADER + sourceLen + compressedLen;
+                // A zlib stream is never empty; a zeroed tail is not a record
+                if (compressedLen <= 0 || rawLen < 0 || next > size) break;
+                pos = next;
+            }
+            return pos;
+        }
+
+        synchronized void append(String source, long atMs, long latencyMs, byte[] raw) throws IOException {
+            deflater.reset();
+            deflater.setInput(raw);
+            deflater.finish();
+            int n = 0;
+            while (!deflater.finished()) {
+                if (n == out.length) out = Arrays.copyOf(out, out.length * 2);
+                n += deflater.deflate(out, n, out.length - n);
+            }
+
+            byte[] src = (source == null) ? new byte[0] : source.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer head = ByteBuffer.allocate(RECORD_HEADER + src.length)
+                    .putInt(n)
+                    .putInt(raw.length)
+                    .putLong(atMs)
+                    .putInt((int) Math.min(Integer.MAX_VALUE, latencyMs))
+                    .putShort((short) src.length)
+                    .put(src)
+                    .flip();
+            writeFully(head, ByteBuffer.wrap(out, 0, n));
+            records++;
+        }
+
+        synchronized long recordCount() {
+            return records;
+        }
+
+        private void writeFully(ByteBuffer... bufs) throws IOException {
+            long left = 0;
+            for (ByteBuffer b : bufs) left += b.remaining();
+            while (left > 0) left -= ch.write(bufs);
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            deflater.end();
+            ch.close();
+        }
+    }
+
+    /** Reads records in order through a memory-mapped view of the file. Not thread-safe. */
+    static final class Reader implements Closeable {
+        // Map at most this much at once so captures over 2 GB still work
+        private static final long WINDOW = 256L * 1024 * 1024;
+
+        private final FileChannel ch;
+        private final long size;
+        private final Inflater inflater = new Inflater();
+        private MappedByteBuffer map;
+        private long mapStart;
+        private long pos;
+
+        Reader(Path file) throws IOException {
+            this.ch = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = ch.size();
+            if (size < MAGIC.length) throw new IOException("Not a chat capture (too short): " + file);
+
+            byte[] magic = new byte[MAGIC.length];
+            window(0, MAGIC.length).get(magic);
+            if (!Arrays.equals(magic, MAGIC)) throw new IOException("Not a chat capture: " + file);
+            pos = MAGIC.length;
+        }
+
+        /** @return the next record, or null at the end (including a torn last record) */
+        Record next() throws IOException {
+            if (size - pos < RECORD_HEADER) return null;
+
+            ByteBuffer b = window(pos, RECORD_HEADER);
+            int compressedLen = b.getInt();
+            int rawLen = b.getInt();
+            long atMs = b.getLong();
+            int latencyMs = b.getInt();
+            int sourceLen = b.getShort() & 0xFFFF;
+
+            long bodyAt = pos + RECORD_HEADER + sourceLen;
+            if (compressedLen < 0 || rawLen < 0 || bodyAt + compressedLen > size) return null;
+
+            byte[] src = new byte[sourceLen];
+            window(pos + RECORD_HEADER, sourceLen).get(src);
+
+            byte[] raw = new byte[rawLen];
+            inflater.reset();
+            inflater.setInput(window(bodyAt, compressedLen));
+            try {
+                int n = 0;
+                while (n < rawLen && !inflater.finished()) {
+                    int k = inflater.inflate(raw, n, rawLen - n);
+                    if (k == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                    n += k;
+                }
+                if (n != rawLen) throw new IOException("Corrupt capture record at offset " + pos);
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt capture record at offset " + pos, e);
+            }
+
+            pos = bodyAt + compressedLen;
+            return new Record(sourceLen == 0 ? null : new String(src, StandardCharsets.UTF_8), atMs, latencyMs, raw);
+        }
+
+        /** A buffer over [at, at + len), remapping if it is not inside the current window. */
+        private ByteBuffer window(long at, int len) throws IOException {
+            if (map == null || at < mapStart || at + len > mapStart + map.capacity()) {
+                long span = Math.min(size - at, Math.max(WINDOW, len));
+                map = ch.map(FileChannel.MapMode.READ_ONLY, at, span);
+                mapStart = at;
+            }
+            int off = (int) (at - mapStart);
+            return map.slice(off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            ch.close();
+        }
+    }
+}
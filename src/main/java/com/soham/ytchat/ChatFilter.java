@@ -0,0 +1,305 @@
+package com.soham.ytchat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Hides chat that matches a blocked keyword or an author rule. Runs on the poll threads,
+ * before messages are handed to the scraper thread, so nothing it drops reaches the HUD
+ * or the history, and the render thread never pays for it.
+ *
+ * Keywords compile into one Aho-Corasick automaton, so a message costs one pass over its
+ * text however many terms are blocked. A term matches whole words; a leading or trailing
+ * {@code *} lets it match inside a word on that side. Author rules are precompiled
+ * regexes looked up by author name or channel ID ({@code *} applies to everyone).
+ *
+ * Instances are immutable. {@link #reload()} compiles a new one off-thread and swaps it
+ * in, so polls keep using the old filter until the new one is ready.
+ */
+final class ChatFilter {
+
+    /** Lets everything through. */
+    static final ChatFilter NONE = new ChatFilter(Automaton.EMPTY, Map.of(), List.of());
+
+    private static volatile ChatFilter current = NONE;
+    private static final AtomicInteger generation = new AtomicInteger();
+
+    private final Automaton keywords;
+    private final Map<String, List<Pattern>> byAuthor;   // lowercase name or channel ID
+    private final List<Pattern> everyone;
+
+    private ChatFilter(Automaton keywords, Map<String, List<Pattern>> byAuthor, List<Pattern> everyone) {
+        this.keywords = keywords;
+        this.byAuthor = byAuthor;
+        this.everyone = everyone;
+    }
+
+    static ChatFilter current() {
+        return current;
+    }
+
+    /** Compile the configured lists on a virtual thread and swap the result in. */
+    static void reload() {
+        List<String> terms = new ArrayList<>(Config.getFilterKeywords());
+        List<String> rules = new ArrayList<>(Config.getFilterAuthorRules());
+        String file = Config.getFilterKeywordFile();
+        int gen = generation.incrementAndGet();
+
+        Thread.ofVirtual().name("ytchat-filter-compile").start(() -> {
+            if (!file.isEmpty()) terms.addAll(readTerms(Path.of(file)));
+            ChatFilter f = compile(terms, rules);
+            // A later reload may have finished first; never replace it with older settings
+            synchronized (ChatFilter.class) {
+                if (generation.get() == gen) current = f;
+            }
+        });
+    }
+
+    static ChatFilter compile(List<String> terms, List<String> authorRules) {
+        Map<String, List<Pattern>> byAuthor = new HashMap<>();
+        List<Pattern> everyone = new ArrayList<>();
+        for (String rule : authorRules) {
+            int colon = rule.indexOf(':');
+            if (colon <= 0) continue;
+            String who = rule.substring(0, colon).strip().toLowerCase(Locale.ROOT);
+            Pattern p;
+            try {
+                p = Pattern.compile(rule.substring(colon + 1), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+            } catch (PatternSyntaxException e) {
+                // One bad rule should not take the rest down with it
+                Log.LOGGER.warn("Ignoring author rule \"{}\": {}", rule, e.getMessage());
+                continue;
+            }
+            if (who.equals("*")) everyone.add(p);
+            else byAuthor.computeIfAbsent(who, k -> new ArrayList<>()).add(p);
+        }
+        byAuthor.replaceAll((k, v) -> List.copyOf(v));
+
+        Automaton a = Automaton.build(terms);
+        if (a == Automaton.EMPTY && byAuthor.isEmpty() && everyone.isEmpty()) return NONE;
+        return new ChatFilter(a, Map.copyOf(byAuthor), List.copyOf(everyone));
+    }
+
+    /** Remove blocked messages from {@code batch}. @return how many were removed */
+    int apply(List<Chat> batch) {
+        if (this == NONE) return 0;
+        int removed = 0;
+        for (Iterator<Chat> it = batch.iterator(); it.hasNext(); ) {
+            if (blocks(it.next())) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    boolean blocks(Chat c) {
+        // Local status lines are ours, not chat
+        if (c.kind() == Chat.Kind.STATUS) return false;
+        String text = c.chat();
+        if (keywords.matches(text)) return true;
+
+        for (Pattern p : everyone) {
+            if (p.matcher(text).find()) return true;
+        }
+        if (byAuthor.isEmpty()) return false;
+        Author a = c.author();
+        return matchesAny(byAuthor.get(a.name().toLowerCase(Locale.ROOT)), text)
+                || (a.channelId() != null && matchesAny(byAuthor.get(a.channelId().toLowerCase(Locale.ROOT)), text));
+    }
+
+    private static boolean matchesAny(List<Pattern> ps, String text) {
+        if (ps == null) return false;
+        for (Pattern p : ps) {
+            if (p.matcher(text).find()) return true;
+        }
+        return false;
+    }
+
+    /** One term per line; blank lines and lines starting with # are skipped. */
+    private static List<String> readTerms(Path file) {
+        try {
+            List<String> out = new ArrayList<>();
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String s = line.strip();
+                if (!s.isEmpty() && !s.startsWith("#")) out.add(s);
+            }
+            return out;
+        } catch (Exception e) {
+            Log.LOGGER.warn("Could not read filter keyword file {}", file, e);
+            return List.of();
+        }
+    }
+
+    // --------------------------
+    // Aho-Corasick
+    // --------------------------
+
+    /**
+     * Case-insensitive multi-term matcher. Transitions live in one open-addressing table
+     * keyed by (state, char), so memory grows with the total length of the terms, not
+     * with the alphabet.
+     */
+    static final class Automaton {
+        static final Automaton EMPTY = new Automaton(new long[]{-1, -1}, new int[2], new int[1], new int[1],
+                new int[1], new byte[1]);
+
+        // Which sides of a term may continue into letters or digits
+        private static final int OPEN_START = 1;
+        private static final int OPEN_END = 2;
+
+        private final long[] keys;     // state << 32 | char, -1 = empty slot
+        private final int[] next;
+        private final int mask;
+        private final int[] fail;
+        private final int[] dict;      // nearest state on the fail chain that ends a term, 0 if none
+        private final int[] termLen;   // 0 if no term ends here
+        private final byte[] variants; // bit 1 << f for every OPEN_* combination f the term was listed with
+
+        private Automaton(long[] keys, int[] next, int[] fail, int[] dict, int[] termLen, byte[] variants) {
+            this.keys = keys;
+            this.next = next;
+            this.mask = keys.length - 1;
+            this.fail = fail;
+            this.dict = dict;
+            this.termLen = termLen;
+            this.variants = variants;
+        }
+
+        static Automaton build(List<String> rawTerms) {
+            // Trie first, with plain maps; it is frozen into arrays below
+            List<Map<Character, Integer>> children = new ArrayList<>();
+            List<Integer> lens = new ArrayList<>();
+            List<Byte> vs = new ArrayList<>();
+            children.add(new HashMap<>());
+            lens.add(0);
+            vs.add((byte) 0);
+
+            LinkedHashSet<String> seen = new LinkedHashSet<>();
+            for (String raw : rawTerms) {
+                if (raw == null) continue;
+                String t = raw.strip().toLowerCase(Locale.ROOT);
+                int f = 0;
+                if (t.startsWith("*")) { f |= OPEN_START; t = t.substring(1); }
+                if (t.endsWith("*")) { f |= OPEN_END; t = t.substring(0, t.length() - 1); }
+                if (t.isEmpty() || !seen.add(f + t)) continue;
+
+                int s = 0;
+                for (int i = 0; i < t.length(); i++) {
+                    char ch = t.charAt(i);
+                    Integer n = children.get(s).get(ch);
+                    if (n == null) {
+                        n = children.size();
+                        children.add(new HashMap<>());
+                        lens.add(0);
+                        vs.add((byte) 0);
+                        children.get(s).put(ch, n);
+                    }
+                    s = n;
+                }
+                lens.set(s, t.length());
+                // The same word with different wildcards ("spam*", "*spam") is each form on its own,
+                // not one wider form ("*spam*")
+                vs.set(s, (byte) (vs.get(s) | 1 << f));
+            }
+            int states = children.size();
+            if (states == 1) return EMPTY;
+
+            int edges = states - 1;
+            int cap = Integer.highestOneBit(Math.max(2, edges * 2) - 1) << 1;
+            long[] keys = new long[cap];
+            Arrays.fill(keys, -1);
+            int[] next = new int[cap];
+            int[] termLen = new int[states];
+            byte[] variants = new byte[states];
+            for (int s = 0; s < states; s++) {
+                termLen[s] = lens.get(s);
+                variants[s] = vs.get(s);
+                for (Map.Entry<Character, Integer> e : children.get(s).entrySet()) {
+                    long k = key(s, e.getKey());
+                    int slot = slot(k, cap - 1);
+                    while (keys[slot] != -1) slot = (slot + 1) & (cap - 1);
+                    keys[slot] = k;
+                    next[slot] = e.getValue();
+                }
+            }
+
+            // Breadth-first, so every state's fail target is done before the state itself
+            int[] fail = new int[states];
+            int[] dict = new int[states];
+            Automaton a = new Automaton(keys, next, fail, dict, termLen, variants);
+            int[] queue = new int[states];
+            int qh = 0, qt = 0;
+            for (int child : children.get(0).values()) queue[qt++] = child;
+            while (qh < qt) {
+                int s = queue[qh++];
+                for (Map.Entry<Character, Integer> e : children.get(s).entrySet()) {
+                    char ch = e.getKey();
+                    int c = e.getValue();
+                    int f = fail[s];
+                    while (f != 0 && a.step(f, ch) < 0) f = fail[f];
+                    int t = a.step(f, ch);
+                    fail[c] = (t < 0 || t == c) ? 0 : t;
+                    dict[c] = (termLen[fail[c]] > 0) ? fail[c] : dict[fail[c]];
+                    queue[qt++] = c;
+                }
+            }
+            return a;
+        }
+
+        /** True if any term occurs in {@code text} with its word boundaries respected. */
+        boolean matches(String text) {
+            if (this == EMPTY) return false;
+            int s = 0;
+            for (int i = 0, n = text.length(); i < n; i++) {
+                char ch = Character.toLowerCase(text.charAt(i));
+                int t;
+                while ((t = step(s, ch)) < 0 && s != 0) s = fail[s];
+                s = (t < 0) ? 0 : t;
+
+                for (int o = (termLen[s] > 0) ? s : dict[s]; o != 0; o = dict[o]) {
+                    int start = i + 1 - termLen[o];
+                    for (int f = 0, v = variants[o]; v != 0; f++, v >>>= 1) {
+                        if ((v & 1) != 0 && bounded(text, start, i, f)) return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private static boolean bounded(String text, int start, int end, int f) {
+            if ((f & OPEN_START) == 0 && start > 0 && Character.isLetterOrDigit(text.charAt(start - 1))) return false;
+            return (f & OPEN_END) != 0 || end + 1 >= text.length() || !Character.isLetterOrDigit(text.charAt(end + 1));
+        }
+
+        private int step(int s, char ch) {
+            long k = key(s, ch);
+            for (int slot = slot(k, mask); ; slot = (slot + 1) & mask) {
+                long v = keys[slot];
+                if (v == k) return next[slot];
+                if (v == -1) return -1;
+            }
+        }
+
+        private static long key(int s, char ch) {
+            return (long) s << 32 | ch;
+        }
+
+        private static int slot(long k, int mask) {
+            long h = k * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 40) & mask;
+        }
+    }
+}
@@ -0,0 +1,516 @@
+package com.soham.ytchat;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Chat history on disk, so scrollback can reach back hours without holding it in memory.
+ *
+ * Messages go into fixed-size, memory-mapped segment files ({@code <firstSeq>.seg}). Every
+ * message gets a global sequence number. When a segment fills up it is sealed with an
+ * {@code .idx} file: its time range, a small Bloom filter of authors, and a sparse
+ * (every {@value #SPARSE}th record) offset/time index. Only the per-segment summaries stay
+ * in memory; a reader maps the few segments it is paging through. Segments older than
+ * the retention window, or past the size cap, are deleted as new ones are sealed.
+ *
+ * One writer thread ({@link #append}) and one reader thread (the other methods).
+ */
+public final class ChatHistory implements AutoCloseable {
+
+    static final int SEGMENT_BYTES = 2 * 1024 * 1024;
+    static final int SPARSE = 64;
+
+    private static final int SEG_MAGIC = 0x59544853;   // "YTHS"
+    private static final int IDX_MAGIC = 0x59544849;   // "YTHI"
+    private static final int HEADER = 8;
+    private static final int MAX_FIELD = 1024;         // bytes kept per author/source
+    private static final int MAX_TEXT = 4096;          // bytes kept per message
+    private static final int BLOOM_WORDS = 256;        // 16k bits: ~1% false positives at 1.7k authors
+    private static final int BLOOM_K = 4;
+    // Smallest possible record is 16 bytes, so this many sparse entries always fit
+    private static final int MAX_SPARSE = SEGMENT_BYTES / 16 / SPARSE + 1;
+
+    /** One stored message. {@code seq} orders messages across all segments. */
+    public record Entry(long seq, long timestampMs, String author, String source, String text) {}
+
+    private final Path dir;
+    private final long retentionMs;
+    private final long maxBytes;
+
+    // Sealed segments, oldest first. Replaced by the writer, iterated by the reader.
+    private final CopyOnWriteArrayList<Segment> sealed = new CopyOnWriteArrayList<>();
+    private volatile Segment active;
+
+    // Reader-side cache of mapped segments; memory stays bounded by this, not by history length
+    private final Map<Segment, ByteBuffer> mapped = new LinkedHashMap<>(4, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Segment, ByteBuffer> e) {
+            return size() > 3;
+        }
+    };
+
+    private boolean failed;
+
+    private ChatHistory(Path dir, long retentionMs, long maxBytes) {
+        this.dir = dir;
+        this.retentionMs = retentionMs;
+        this.maxBytes = maxBytes;
+    }
+
+    /** Opens (or creates) the history in {@code dir} and starts a fresh segment. */
+    public static ChatHistory open(Path dir, long retentionMs, long maxBytes) throws IOException {
+        Files.createDirectories(dir);
+        ChatHistory h = new ChatHistory(dir, retentionMs, maxBytes);
+
+        List<Path> segs = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "*.seg")) {
+            for (Path p : ds) segs.add(p);
+        }
+        segs.sort(null);   // zero-padded sequence numbers sort by name
+
+        for (Path p : segs) {
+            try {
+                Segment s = loadOrRebuild(p);
+                if (s.count > 0) h.sealed.add(s);
+                else Files.deleteIfExists(p);
+            } catch (IOException e) {
+                // A damaged segment only loses its own messages
+                Log.LOGGER.warn("Skipping damaged history segment {}", p, e);
+            }
+        }
+
+        long next = h.sealed.isEmpty() ? 0 : h.sealed.get(h.sealed.size() - 1).endSeq();
+        h.active = h.createSegment(next);
+        h.enforceRetention(System.currentTimeMillis());
+        return h;
+    }
+
+    // --------------------------
+    // Writer
+    // --------------------------
+
+    /** Stores one message. Never throws; after an I/O error history just stops recording. */
+    public void append(Chat c) {
+        if (failed) return;
+        try {
+            long ts = (c.timestampMs() > 0) ? c.timestampMs() : System.currentTimeMillis();
+            byte[] author = utf8(c.author().name(), MAX_FIELD);
+            byte[] source = utf8(c.source(), MAX_FIELD);
+            byte[] text = utf8(c.chat(), MAX_TEXT);
+            int len = 8 + 2 + author.length + 2 + source.length + text.length;
+
+            Segment s = active;
+            if (s.end + 4 + len > SEGMENT_BYTES) {
+                seal(s);
+                s = active = createSegment(s.endSeq());
+                enforceRetention(System.currentTimeMillis());
+            }
+
+            ByteBuffer b = s.buf;
+            int p = s.end;
+            b.putLong(p + 4, ts);
+            b.putShort(p + 12, (short) author.length);
+            b.put(p + 14, author);
+            int q = p + 14 + author.length;
+            b.putShort(q, (short) source.length);
+            b.put(q + 2, source);
+            b.put(q + 2 + source.length, text);
+            // Length last: a reader never sees a half-written record
+            b.putInt(p, len);
+
+            int n = s.count;
+            if (n % SPARSE == 0) {
+                s.sparseOffset[n / SPARSE] = p;
+                s.sparseTs[n / SPARSE] = ts;
+            }
+            if (n == 0) s.firstTs = ts;
+            s.lastTs = ts;
+            bloomAdd(s.bloom, authorHash(c.author().name()));
+            s.end = p + 4 + len;
+            s.count = n + 1;   // volatile: publishes everything above
+        } catch (Exception e) {
+            failed = true;
+            Log.LOGGER.error("Chat history write failed; history is off until the next restart", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        Segment s = active;
+        if (s != null && !failed) {
+            try { seal(s); }
+            catch (IOException e) { Log.LOGGER.warn("Could not seal history segment", e); }
+        }
+        failed = true;
+    }
+
+    private Segment createSegment(long baseSeq) throws IOException {
+        Path p = dir.resolve(String.format(Locale.ROOT, "%016d.seg", baseSeq));
+        try (RandomAccessFile raf = new RandomAccessFile(p.toFile(), "rw")) {
+            raf.setLength(SEGMENT_BYTES);
+            MappedByteBuffer buf = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+            buf.putInt(0, SEG_MAGIC);
+            Segment s = new Segment(p, baseSeq);
+            s.buf = buf;
+            s.end = HEADER;
+            s.sparseOffset = new int[MAX_SPARSE];
+            s.sparseTs = new long[MAX_SPARSE];
+            return s;
+        }
+    }
+
+    private void seal(Segment s) throws IOException {
+        if (s.count == 0) {
+            // Nothing worth keeping; the next session starts at the same sequence number anyway
+            Files.deleteIfExists(s.path);
+            return;
+        }
+        writeIndex(s);
+        // A fresh summary object, so a reader still holding the active one keeps its buffers
+        sealed.add(s.summary());
+    }
+
+    private void enforceRetention(long nowMs) {
+        long total = (long) (sealed.size() + 1) * SEGMENT_BYTES;
+        while (!sealed.isEmpty()) {
+            Segment oldest = sealed.get(0);
+            boolean expired = retentionMs > 0 && oldest.lastTs < nowMs - retentionMs;
+            boolean tooBig = maxBytes > 0 && total > maxBytes;
+            if (!expired && !tooBig) break;
+
+            sealed.remove(0);
+            total -= SEGMENT_BYTES;
+            try {
+                Files.deleteIfExists(indexPath(oldest.path));
+                Files.deleteIfExists(oldest.path);
+            } catch (IOException e) {
+                // Still mapped somewhere (Windows); it goes next time
+            }
+        }
+    }
+
+    // --------------------------
+    // Reader
+    // --------------------------
+
+    /** Sequence number the next message will get. */
+    public long endSeq() {
+        return active.endSeq();
+    }
+
+    /** Oldest sequence number still on disk. */
+    public long firstSeq() {
+        return sealed.isEmpty() ? active.baseSeq : sealed.get(0).baseSeq;
+    }
+
+    /**
+     * Up to {@code n} messages with {@code seq < end}, oldest first. With an author, only
+     * that author's messages (case-insensitive) are returned; segments whose author filter
+     * rules them out are not read at all.
+     */
+    public List<Entry> readBefore(long end, int n, String author) {
+        ArrayDeque<Entry> out = new ArrayDeque<>(n);
+        List<Segment> segs = segments();
+        long h = (author == null) ? 0 : authorHash(author);
+
+        for (int i = segs.size() - 1; i >= 0 && out.size() < n; i--) {
+            Segment s = segs.get(i);
+            int count = s.count;
+            if (s.baseSeq >= end || count == 0) continue;
+            if (author != null && !bloomMightContain(s.bloom, h)) continue;
+
+            int limit = (int) Math.min(count, end - s.baseSeq);
+            int want = n - out.size();
+            int from = (author == null) ? Math.max(0, limit - want) : 0;
+
+            // Newest matches of this segment, kept in a window of size `want`
+            ArrayDeque<Entry> window = new ArrayDeque<>(want);
+            scan(s, from, limit, author, e -> {
+                if (window.size() == want) window.pollFirst();
+                window.addLast(e);
+            });
+            while (!window.isEmpty()) out.addFirst(window.pollLast());
+        }
+        return new ArrayList<>(out);
+    }
+
+    /** Up to {@code n} messages with {@code seq >= start}, oldest first. */
+    public List<Entry> readFrom(long start, int n, String author) {
+        List<Entry> out = new ArrayList<>(n);
+        long h = (author == null) ? 0 : authorHash(author);
+
+        for (Segment s : segments()) {
+            if (out.size() >= n) break;
+            int count = s.count;
+            if (s.baseSeq + count <= start || count == 0) continue;
+            if (author != null && !bloomMightContain(s.bloom, h)) continue;
+
+            int from = (int) Math.max(0, start - s.baseSeq);
+            scan(s, from, count, author, e -> {
+                if (out.size() < n) out.add(e);
+            });
+        }
+        return out;
+    }
+
+    /** First sequence number at or after {@code timestampMs} (approximate within a few messages). */
+    public long seqAt(long timestampMs) {
+        for (Segment s : segments()) {
+            int count = s.count;
+            if (count == 0 || s.lastTs < timestampMs) continue;
+            if (s.firstTs >= timestampMs) return s.baseSeq;
+
+            // Last sparse point before the time, then walk forward
+            ByteBuffer b = map(s);
+            if (b == null) return s.baseSeq;
+            int blocks = (count + SPARSE - 1) / SPARSE;
+            int lo = 0, hi = blocks - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (s.sparseTs[mid] <= timestampMs) lo = mid;
+                else hi = mid - 1;
+            }
+            int rec = lo * SPARSE;
+            int p = s.sparseOffset[lo];
+            while (rec < count && b.getLong(p + 4) < timestampMs) {
+                p += 4 + b.getInt(p);
+                rec++;
+            }
+            return s.baseSeq + rec;
+        }
+        return endSeq();
+    }
+
+    private List<Segment> segments() {
+        // Active first: the writer adds the sealed copy before swapping in a new active one
+        Segment a = active;
+        List<Segment> all = new ArrayList<>(sealed.size() + 1);
+        all.addAll(sealed);
+        if (all.isEmpty() || all.get(all.size() - 1).baseSeq != a.baseSeq) all.add(a);
+        return all;
+    }
+
+    private interface EntrySink {
+        void accept(Entry e);
+    }
+
+    /** Records [from, to) of one segment, optionally only those by {@code author}. */
+    private void scan(Segment s, int from, int to, String author, EntrySink sink) {
+        ByteBuffer b = map(s);
+        if (b == null || from >= to) return;
+
+        int block = from / SPARSE;
+        int rec = block * SPARSE;
+        int p = s.sparseOffset[block];
+        byte[] tmp = new byte[MAX_TEXT];
+        while (rec < to) {
+            int len = b.getInt(p);
+            if (len <= 0) break;
+            if (rec >= from) {
+                long ts = b.getLong(p + 4);
+                int aLen = b.getShort(p + 12) & 0xFFFF;
+                String a = string(b, p + 14, aLen, tmp);
+                if (author == null || a.equalsIgnoreCase(author)) {
+                    int q = p + 14 + aLen;
+                    int sLen = b.getShort(q) & 0xFFFF;
+                    String src = (sLen == 0) ? null : string(b, q + 2, sLen, tmp);
+                    int tLen = len - 8 - 2 - aLen - 2 - sLen;
+                    sink.accept(new Entry(s.baseSeq + rec, ts, a, src, string(b, q + 2 + sLen, tLen, tmp)));
+                }
+            }
+            p += 4 + len;
+            rec++;
+        }
+    }
+
+    /** The segment's data; sealed segments are mapped read-only on demand and cached. */
+    private ByteBuffer map(Segment s) {
+        if (s.buf != null) return s.buf;
+        ByteBuffer b = mapped.get(s);
+        if (b != null) return b;
+        try (FileChannel ch = FileChannel.open(s.path, StandardOpenOption.READ)) {
+            b = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (s.sparseOffset == null) readSparse(s);
+            mapped.put(s, b);
+            return b;
+        } catch (IOException e) {
+            return null;   // rolled off under us
+        }
+    }
+
+    // --------------------------
+    // Index files
+    // --------------------------
+
+    private static Path indexPath(Path seg) {
+        String name = seg.getFileName().toString();
+        return seg.resolveSibling(name.substring(0, name.length() - 4) + ".idx");
+    }
+
+    private static void writeIndex(Segment s) throws IOException {
+        int blocks = (s.count + SPARSE - 1) / SPARSE;
+        ByteBuffer b = ByteBuffer.allocate(4 + 4 + 8 + 8 + 4 + BLOOM_WORDS * 8 + 4 + blocks * 12);
+        b.putInt(IDX_MAGIC).putInt(s.count).putLong(s.firstTs).putLong(s.lastTs).putInt(s.end);
+        for (long w : s.bloom) b.putLong(w);
+        b.putInt(blocks);
+        for (int i = 0; i < blocks; i++) b.putLong(s.sparseTs[i]).putInt(s.sparseOffset[i]);
+        Files.write(indexPath(s.path), b.array());
+    }
+
+    /** Summary only; the sparse index is read when the segment is first mapped. */
+    private static Segment loadOrRebuild(Path seg) throws IOException {
+        long base = Long.parseLong(seg.getFileName().toString().replace(".seg", ""));
+        Path idx = indexPath(seg);
+        Segment s = new Segment(seg, base);
+
+        if (Files.exists(idx)) {
+            ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(idx));
+            if (b.remaining() >= 28 + BLOOM_WORDS * 8 && b.getInt() == IDX_MAGIC) {
+                s.count = b.getInt();
+                s.firstTs = b.getLong();
+                s.lastTs = b.getLong();
+                s.end = b.getInt();
+                for (int i = 0; i < BLOOM_WORDS; i++) s.bloom[i] = b.getLong();
+                return s;
+            }
+        }
+
+        // Left over from a crash or a session that never sealed: scan it once
+        try (FileChannel ch = FileChannel.open(seg, StandardOpenOption.READ)) {
+            ByteBuffer b = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (b.capacity() < HEADER || b.getInt(0) != SEG_MAGIC) throw new IOException("Not a history segment: " + seg);
+            s.sparseOffset = new int[MAX_SPARSE];
+            s.sparseTs = new long[MAX_SPARSE];
+            int p = HEADER;
+            int n = 0;
+            byte[] tmp = new byte[MAX_FIELD];
+            while (p + 4 <= b.capacity()) {
+                int len = b.getInt(p);
+                if (len < 12 || p + 4 + len > b.capacity()) break;
+                long ts = b.getLong(p + 4);
+                int aLen = b.getShort(p + 12) & 0xFFFF;
+                if (n % SPARSE == 0) {
+                    s.sparseOffset[n / SPARSE] = p;
+                    s.sparseTs[n / SPARSE] = ts;
+                }
+                if (n == 0) s.firstTs = ts;
+                s.lastTs = ts;
+                bloomAdd(s.bloom, authorHash(string(b, p + 14, Math.min(aLen, MAX_FIELD), tmp)));
+                p += 4 + len;
+                n++;
+            }
+            s.count = n;
+            s.end = p;
+        }
+        if (s.count > 0) writeIndex(s);
+        return s.summary();
+    }
+
+    private static void readSparse(Segment s) throws IOException {
+        ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(indexPath(s.path)));
+        b.position(28 + BLOOM_WORDS * 8);
+        int blocks = b.getInt();
+        int[] off = new int[blocks];
+        long[] ts = new long[blocks];
+        for (int i = 0; i < blocks; i++) {
+            ts[i] = b.getLong();
+            off[i] = b.getInt();
+        }
+        s.sparseTs = ts;
+        s.sparseOffset = off;
+    }
+
+    // --------------------------
+    // Helpers
+    // --------------------------
+
+    private static byte[] utf8(String s, int max) {
+        if (s == null) return new byte[0];
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        if (b.length <= max) return b;
+        // Cut on a character boundary
+        int n = max;
+        while (n > 0 && (b[n] & 0xC0) == 0x80) n--;
+        return Arrays.copyOf(b, n);
+    }
+
+    private static String string(ByteBuffer b, int at, int len, byte[] tmp) {
+        byte[] dst = (len <= tmp.length) ? tmp : new byte[len];
+        b.get(at, dst, 0, len);
+        return new String(dst, 0, len, StandardCharsets.UTF_8);
+    }
+
+    private static long authorHash(String author) {
+        return MessageDeduper.hash(author == null ? "" : author.toLowerCase(Locale.ROOT));
+    }
+
+    private static void bloomAdd(long[] bits, long h) {
+        long h2 = (h >>> 32) | 1;
+        for (int i = 0; i < BLOOM_K; i++) {
+            int bit = (int) Long.remainderUnsigned(h + i * h2, BLOOM_WORDS * 64L);
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private static boolean bloomMightContain(long[] bits, long h) {
+        long h2 = (h >>> 32) | 1;
+        for (int i = 0; i < BLOOM_K; i++) {
+            int bit = (int) Long.remainderUnsigned(h + i * h2, BLOOM_WORDS * 64L);
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /** A segment file and what is known about it without reading it. */
+    private static final class Segment {
+        final Path path;
+        final long baseSeq;
+        final long[] bloom = new long[BLOOM_WORDS];
+
+        // Written by the writer, published by the volatile count
+        volatile int count;
+        int end;
+        long firstTs, lastTs;
+        int[] sparseOffset;
+        long[] sparseTs;
+
+        // Only while this is the active segment
+        MappedByteBuffer buf;
+
+        Segment(Path path, long baseSeq) {
+            this.path = path;
+            this.baseSeq = baseSeq;
+        }
+
+        long endSeq() {
+            return baseSeq + count;
+        }
+
+        /** Same segment without the in-memory buffers; what the sealed list keeps. */
+        Segment summary() {
+            Segment s = new Segment(path, baseSeq);
+            System.arraycopy(bloom, 0, s.bloom, 0, BLOOM_WORDS);
+            s.end = end;
+            s.firstTs = firstTs;
+            s.lastTs = lastTs;
+            s.count = count;
+            return s;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.soham.ytchat;
+
+import net.minecraft.client.gui.GuiGraphics;
+import net.minecraft.client.gui.components.Button;
+import net.minecraft.client.gui.components.EditBox;
+import net.minecraft.client.gui.screens.Screen;
+import net.minecraft.network.chat.Component;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Scrollback over {@link ChatHistory}. Only the page on screen is read from disk, so
+ * paging through hours of chat costs the same as looking at the last minute.
+ */
+public final class ChatHistoryScreen extends Screen {
+
+    private static final int TOP = 58;
+    private static final int BOTTOM_MARGIN = 34;
+    private static final int TEXT_COLOR = 0xFFFFFFFF;
+    private static final int TIME_COLOR = 0xFF8A8A8A;
+    private static final long FOLLOW_REFRESH_MS = 1_000;
+    private static final long JUMP_MS = 10 * 60_000L;
+
+    private static final DateTimeFormatter TIME =
+            DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private final Screen parent;
+    private final ChatHistory history;
+
+    private EditBox authorBox;
+
+    // Page shown ends just before `end`; following = stick to the newest messages
+    private long end = Long.MAX_VALUE;
+    private boolean following = true;
+    private List<ChatHistory.Entry> page = List.of();
+    private String author;
+    private long loadedAtMs;
+
+    // The page laid out once per reload, not per frame
+    private String[] times = new String[0];
+    private String[] lines = new String[0];
+    private int[] colors = new int[0];
+
+    public ChatHistoryScreen(Screen parent) {
+        super(Component.literal("Chat History"));
+        this.parent = parent;
+        this.history = (ExampleMod.SCRAPER != null) ? ExampleMod.SCRAPER.history() : null;
+    }
+
+    @Override
+    protected void init() {
+        int w = this.width;
+        int y = 24;
+
+        authorBox = new EditBox(this.font, w / 2 - 160, y, 150, 20, Component.literal("Author"));
+        authorBox.setMaxLength(100);
+        authorBox.setHint(Component.literal("Filter by author"));
+        if (author != null) authorBox.setValue(author);
+        this.addRenderableWidget(authorBox);
+
+        this.addRenderableWidget(Button.builder(Component.literal("Filter"), btn -> {
+            String a = authorBox.getValue().trim();
+            author = a.isEmpty() ? null : a;
+            following = true;
+            reload();
+        }).bounds(w / 2 - 6, y, 50, 20).build());
+
+        this.addRenderableWidget(Button.builder(Component.literal("-10 min"), btn -> jumpBack())
+                .bounds(w / 2 + 48, y, 55, 20).build());
+
+        this.addRenderableWidget(Button.builder(Component.literal("Latest"), btn -> {
+            following = true;
+            reload();
+        }).bounds(w / 2 + 107, y, 53, 20).build());
+
+        int by = this.height - 26;
+        this.addRenderableWidget(Button.builder(Component.literal("Older"), btn -> older(rows()))
+                .bounds(w / 2 - 160, by, 100, 20).build());
+        this.addRenderableWidget(Button.builder(Component.literal("Newer"), btn -> newer(rows()))
+                .bounds(w / 2 - 50, by, 100, 20).build());
+        this.addRenderableWidget(Button.builder(Component.literal("Done"), btn -> this.minecraft.setScreen(parent))
+                .bounds(w / 2 + 60, by, 100, 20).build());
+
+        reload();
+    }
+
+    @Override
+    public void render(GuiGraphics g, int mouseX, int mouseY, float partialTick) {
+        super.render(g, mouseX, mouseY, partialTick);
+        g.drawCenteredString(this.font, this.title, this.width / 2, 8, TEXT_COLOR);
+
+        if (history == null) {
+            g.drawCenteredString(this.font, "Chat history is disabled.", this.width / 2, TOP + 20, TIME_COLOR);
+            return;
+        }
+
+        if (following && System.currentTimeMillis() - loadedAtMs > FOLLOW_REFRESH_MS) reload();
+
+        int x = this.width / 2 - 160;
+        int lineH = this.font.lineHeight + 1;
+        int y = TOP;
+        for (int i = 0; i < lines.length; i++) {
+            g.drawString(this.font, times[i], x, y, TIME_COLOR, false);
+            g.drawString(this.font, lines[i], x + this.font.width(times[i]), y, colors[i], false);
+            y += lineH;
+        }
+
+        if (page.isEmpty()) {
+            g.drawCenteredString(this.font, "No messages.", this.width / 2, TOP + 20, TIME_COLOR);
+        }
+    }
+
+    @Override
+    public boolean mouseScrolled(double mouseX, double mouseY, double scrollX, double scrollY) {
+        if (scrollY > 0) older(3);
+        else if (scrollY < 0) newer(3);
+        return true;
+    }
+
+    @Override
+    public boolean isPauseScreen() {
+        return false;
+    }
+
+    private int rows() {
+        return Math.max(1, (this.height - TOP - BOTTOM_MARGIN) / (this.font.lineHeight + 1));
+    }
+
+    private void reload() {
+        loadedAtMs = System.currentTimeMillis();
+        if (history == null) return;
+        if (following) end = history.endSeq();
+        page = history.readBefore(end, rows(), author);
+
+        boolean tagged = ExampleMod.SCRAPER != null && ExampleMod.SCRAPER.streamCount() > 1;
+        times = new String[page.size()];
+        lines = new String[page.size()];
+        colors = new int[page.size()];
+        for (int i = 0; i < page.size(); i++) {
+            ChatHistory.Entry e = page.get(i);
+            times[i] = TIME.format(Instant.ofEpochMilli(e.timestampMs())) + " ";
+            String who = (tagged && e.source() != null) ? "[" + e.source() + "] " + e.author() : e.author();
+            lines[i] = clip(who + ": " + e.text(), 320 - this.font.width(times[i]));
+            colors[i] = Author.colorFor(e.author());
+        }
+    }
+
+    private void older(int n) {
+        if (history == null || page.isEmpty()) return;
+        List<ChatHistory.Entry> before = history.readBefore(page.get(0).seq(), n, author);
+        if (before.isEmpty()) return;
+        // Drop as many from the bottom as were added at the top
+        int keep = Math.max(0, page.size() - before.size());
+        end = (keep == 0) ? before.get(before.size() - 1).seq() + 1 : page.get(keep - 1).seq() + 1;
+        following = false;
+        reload();
+    }
+
+    private void newer(int n) {
+        if (history == null || following || page.isEmpty()) return;
+        List<ChatHistory.Entry> after = history.readFrom(page.get(page.size() - 1).seq() + 1, n, author);
+        if (after.size() < n) {
+            following = true;
+        } else {
+            end = after.get(after.size() - 1).seq() + 1;
+        }
+        reload();
+    }
+
+    private void jumpBack() {
+        if (history == null) return;
+        long from = page.isEmpty() ? System.currentTimeMillis() : page.get(0).timestampMs();
+        long seq = history.seqAt(from - JUMP_MS);
+        List<ChatHistory.Entry> at = history.readFrom(seq, rows(), author);
+        if (at.isEmpty()) return;
+        end = at.get(at.size() - 1).seq() + 1;
+        following = false;
+        reload();
+    }
+
+    /** Longest prefix that fits with "..." appended (binary search on the prefix length). */
+    private String clip(String s, int maxW) {
+        if (this.font.width(s) <= maxW) return s;
+        int room = maxW - this.font.width("...");
+        int lo = 0, hi = s.length();
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (this.font.width(s.substring(0, mid)) <= room) lo = mid;
+            else hi = mid - 1;
+        }
+        return s.substring(0, lo) + "...";
+    }
+}
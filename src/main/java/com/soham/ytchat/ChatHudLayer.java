@@ -1,141 +1,247 @@
 package com.soham.ytchat;
 
 import net.minecraft.client.Minecraft;
+import net.minecraft.client.gui.Font;
 import net.minecraft.client.gui.GuiGraphics;
-import net.minecraft.util.FormattedCharSequence;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.List;
+import java.util.Arrays;
 
 public final class ChatHudLayer {
 
     // How many *chat entries* to keep (each entry can wrap into multiple lines)
     private static final int MAX_ENTRIES = 30;
 
-    // Twitch-like layout
-    private static final int MARGIN = 6;
-    private static final int PADDING = 4;
+    // Colors
+    private static final int TITLE_COLOR  = 0xFFFFFFFF;
+    private static final String TITLE = "Chat";
 
-    // Target on-screen size (in pixels)
-    private static final int BOX_W_PX = 185;   // narrow column like the screenshot
-    private static final int MAX_BOX_H_PX = 120; // keeps it from getting huge
+    // Wrapped entries and their layout; client tick only. Created with the first font seen.
+    private static ChatLayout layout;
+    private static FontTextMetrics metrics;
 
-    // Makes text + UI smaller (this is the text smaller fix)
-    private static final float SCALE = 0.75f;
+    // Layout the cached lines were built for; a change invalidates every entry
+    private static int layoutWrapW = -1;
+    private static double layoutGuiScale = -1;
 
-    // Colors
-    private static final int HEADER_BG = 0xCC1E3A8A; // bluish header
-    private static final int BODY_BG   = 0x99000000; // translucent black
-    private static final int BORDER    = 0x66000000;
-
-    private static final int USER_DEFAULT = 0xFF66CCFF; // light cyan for username
-    private static final int MSG_COLOR    = 0xFFFFFFFF; // white message
-    private static final int TITLE_COLOR  = 0xFFFFFFFF;
+    private static final FloodAggregator FLOOD = new FloodAggregator();
+    private static String title = TITLE;
+    private static int titleSampleEvery = 1;
+    // Scraper session the flood state belongs to; a restart means new streams and a fresh rate
+    private static int floodSession = -1;
 
-    private static final Deque<ChatEntry> ENTRIES = new ArrayDeque<>();
+    // What the renderer draws: published by the tick, never modified after
+    private static volatile ChatLayout.Snapshot snapshot = new ChatLayout.Snapshot(new ChatLayout.Entry[0], 0, TITLE);
 
     private ChatHudLayer() {}
 
-    private record ChatEntry(String author, String msg, int authorColor) {}
+    // Cached layout: the positioned panel, rebuilt only for a new snapshot or window width.
+    // Its draws are still issued every frame; only the geometry pass is skipped.
+    private static final DrawList CACHED = new DrawList();
+    private static ChatLayout.Snapshot cachedFor;
+    private static int cachedSw = -1;
 
-    public static void render(GuiGraphics g) {
+    private static final GuiSink IMMEDIATE = new GuiSink();
+
+    /**
+     * Client tick: moves queued chat into the panel for up to {@code hudDrainBudgetUs},
+     * wrapping each message as it goes, then publishes a new snapshot if anything changed.
+     * Rendering never touches the queue, so frame time does not depend on the chat rate.
+     */
+    public static void tick() {
         Minecraft mc = Minecraft.getInstance();
         if (mc.player == null) return;
+        long t0 = Metrics.start();
+
+        boolean changed = false;
+        int wrapW = ChatLayout.WRAP_W;
+        double guiScale = mc.getWindow().getGuiScale();
+        if (metrics == null || metrics.font() != mc.font) {
+            metrics = new FontTextMetrics(mc.font);
+            if (layout == null) layout = new ChatLayout(MAX_ENTRIES, metrics, wrapW);
+            layoutWrapW = -1;
+        }
+        if (wrapW != layoutWrapW || guiScale != layoutGuiScale) {
+            metrics.clear();
+            layout.relayout(metrics, wrapW);
+            layoutWrapW = wrapW;
+            layoutGuiScale = guiScale;
+            changed = true;
+        }
 
-        // Drain queue
-        if (ExampleMod.SCRAPER != null) {
-            for (int i = 0; i < 25; i++) {
-                Chat c = ExampleMod.SCRAPER.incoming.poll();
+        ChatScraperService scraper = ExampleMod.SCRAPER;
+        if (scraper != null) {
+            if (Metrics.enabled) Metrics.QUEUE_DEPTH.record(scraper.incoming.size());
+            boolean aggregate = Config.isFloodAggregateEnabled();
+            if (scraper.session() != floodSession) {
+                FLOOD.clear();
+                floodSession = scraper.session();
+            }
+            if (aggregate) FLOOD.configure(Config.getFloodWindowMs(), Config.getFloodRateThreshold());
+            long nowMs = System.currentTimeMillis();
+            long deadline = System.nanoTime() + Config.getHudDrainBudgetUs() * 1_000L;
+            int drained = 0;
+            do {
+                Chat c = scraper.incoming.poll();
                 if (c == null) break;
+                drained++;
+                if (c.timestampMs() > 0) {
+                    scraper.stats.recordLatency(System.currentTimeMillis() - c.timestampMs());
+                }
+
+                // Authors and text arrive trimmed; the prefix and color come precomputed with the author
+                Author a = c.author();
+                if (a.name().isEmpty() || c.chat().isEmpty()) continue;
+
+                FloodAggregator.Group group = null;
+                if (aggregate) {
+                    int d = FLOOD.offer(c, nowMs);
+                    if (d == FloodAggregator.SAMPLED_OUT) continue;
+                    group = FLOOD.group();
+                    if (d == FloodAggregator.MERGED) {
+                        int slot = layout.slotOf(group.entrySeq);
+                        if (slot >= 0) {
+                            // Just a bigger count; the entry is redrawn once at the end of the tick
+                            layout.markDirty(slot);
+                            continue;
+                        }
+                        // Its entry has scrolled away: start a new one that carries the count
+                    }
+                }
+
+                // Co-streams: say which chat it came from
+                String prefix = (c.source() != null && scraper.streamCount() > 1)
+                        ? "[" + c.source() + "] " + a.prefix()
+                        : a.prefix();
+
+                long seq = layout.push(prefix, c.chat(), a.color(), group);
+                if (group != null) group.entrySeq = seq;
+                changed = true;
+            } while (System.nanoTime() < deadline);
+            Metrics.DRAIN_PER_TICK.record(drained);
+
+            if (layout.refreshDirty()) changed = true;
+            int every = (aggregate && FLOOD.flooding()) ? FLOOD.sampleEvery() : 1;
+            if (every != titleSampleEvery) {
+                titleSampleEvery = every;
+                title = (every > 1) ? TITLE + " (1 in " + every + ")" : TITLE;
+                changed = true;
+            }
+        }
 
-                String author = (c.author() == null) ? "" : c.author().trim();
-                String msg = (c.chat() == null) ? "" : c.chat().trim();
-                if (author.isEmpty() || msg.isEmpty()) continue;
+        if (changed) snapshot = layout.snapshot(title);
+        Metrics.HUD_TICK_US.stop(t0);
+    }
 
-                int color = colorFor(author);
-                ENTRIES.addLast(new ChatEntry(author, msg, color));
-                while (ENTRIES.size() > MAX_ENTRIES) ENTRIES.removeFirst();
+    public static void render(GuiGraphics g) {
+        Minecraft mc = Minecraft.getInstance();
+        if (mc.player == null) return;
+        long t0 = Metrics.start();
+
+        ChatLayout.Snapshot snap = snapshot;
+        int sw = mc.getWindow().getGuiScaledWidth();
+
+        if (Config.getHudRenderMode() == HudRenderMode.CACHED_LAYOUT) {
+            if (snap != cachedFor || sw != cachedSw) {
+                CACHED.clear();
+                ChatLayout.emitPanel(CACHED, snap, sw, mc.font.lineHeight);
+                cachedFor = snap;
+                cachedSw = sw;
             }
+            CACHED.replay(g, mc.font);
+        } else {
+            IMMEDIATE.g = g;
+            IMMEDIATE.font = mc.font;
+            ChatLayout.emitPanel(IMMEDIATE, snap, sw, mc.font.lineHeight);
+            IMMEDIATE.g = null;
         }
 
-        int sw = mc.getWindow().getGuiScaledWidth();
+        if (Metrics.enabled) {
+            Metrics.FRAMES.inc();
+            Metrics.HUD_RENDER_US.stop(t0);
+            MetricsOverlay.render(g, mc.font);
+        }
+    }
+
+    /** Immediate mode: straight to GuiGraphics. */
+    private static final class GuiSink implements ChatLayout.PanelSink {
+        GuiGraphics g;
+        Font font;
 
-        // === "Smaller" look without scaling the matrix ===
-        // Instead: reduce widths/heights + line spacing to feel smaller.
-        // (Font size itself cant be changed without scaling.)
-        final int margin = 6;
-        final int padding = 3;
-        final int boxW = 170;         // narrower
-        final int maxBoxH = 105;      // shorter
-        final int headerH = mc.font.lineHeight + 3;
-        final int lineH = mc.font.lineHeight; // tighter than +1/+2
-
-        // Top-right anchor
-        int x0 = sw - boxW - margin;
-        int y0 = margin;
-
-        int wrapW = boxW - (padding * 2);
-
-        record Line(FormattedCharSequence seq, int color) {}
-        ArrayDeque<Line> lines = new ArrayDeque<>();
-
-        for (ChatEntry e : ENTRIES) {
-            // Username (colored)
-            String head = e.author + ": ";
-            List<FormattedCharSequence> headParts =
-                    mc.font.split(net.minecraft.network.chat.Component.literal(head), wrapW);
-            // Message (white)
-            List<FormattedCharSequence> msgParts =
-                    mc.font.split(net.minecraft.network.chat.Component.literal(e.msg), wrapW);
-
-            // Put username on its own line, then message lines under it
-            for (FormattedCharSequence hp : headParts) lines.addLast(new Line(hp, e.authorColor));
-            for (FormattedCharSequence mp : msgParts) lines.addLast(new Line(mp, MSG_COLOR));
+        @Override
+        public void fill(int x0, int y0, int x1, int y1, int color) {
+            g.fill(x0, y0, x1, y1, color);
         }
 
-        int bodyH = (lines.size() * lineH) + (padding * 2);
-        int boxH = Math.min(headerH + bodyH, maxBoxH);
+        @Override
+        public void title(String text, int x, int y) {
+            g.drawString(font, text, x, y, TITLE_COLOR, false);
+        }
 
-        // Background + header
-        g.fill(x0, y0, x0 + boxW, y0 + boxH, BODY_BG);
-        g.fill(x0, y0, x0 + boxW, y0 + headerH, HEADER_BG);
+        @Override
+        public void line(String text, int x, int y, int color) {
+            g.drawString(font, text, x, y, color, false);
+        }
+    }
 
-        // Border
-        g.fill(x0, y0, x0 + boxW, y0 + 1, BORDER);
-        g.fill(x0, y0 + boxH - 1, x0 + boxW, y0 + boxH, BORDER);
-        g.fill(x0, y0, x0 + 1, y0 + boxH, BORDER);
-        g.fill(x0 + boxW - 1, y0, x0 + boxW, y0 + boxH, BORDER);
+    /** Cached layout: flat arrays of positioned draws, reused across rebuilds and replayed each frame. */
+    private static final class DrawList implements ChatLayout.PanelSink {
+        private int[] rects = new int[8 * 5];
+        private int rectCount;
 
-        // Header label
-        g.drawString(mc.font, "Chat", x0 + padding, y0 + 1, TITLE_COLOR, false);
+        private String[] texts = new String[32];
+        private int[] linePos = new int[32 * 3];
+        private int lineCount;
 
-        // Draw bottom-up
-        int bodyTop = y0 + headerH + padding;
-        int bodyBottom = y0 + boxH - padding;
+        private String titleText = TITLE;
+        private int titleX, titleY;
 
-        int y = bodyBottom - lineH;
+        void clear() {
+            rectCount = 0;
+            Arrays.fill(texts, 0, lineCount, null);
+            lineCount = 0;
+        }
 
-        Line[] arr = lines.toArray(new Line[0]);
-        for (int i = arr.length - 1; i >= 0; i--) {
-            if (y < bodyTop) break;
-            Line ln = arr[i];
-            g.drawString(mc.font, ln.seq, x0 + padding, y, ln.color, false);
-            y -= lineH;
+        @Override
+        public void fill(int x0, int y0, int x1, int y1, int color) {
+            if ((rectCount + 1) * 5 > rects.length) rects = Arrays.copyOf(rects, rects.length * 2);
+            int o = rectCount++ * 5;
+            rects[o] = x0;
+            rects[o + 1] = y0;
+            rects[o + 2] = x1;
+            rects[o + 3] = y1;
+            rects[o + 4] = color;
+        }
+
+        @Override
+        public void title(String text, int x, int y) {
+            titleText = text;
+            titleX = x;
+            titleY = y;
         }
-    }
 
+        @Override
+        public void line(String text, int x, int y, int color) {
+            if (lineCount == texts.length) {
+                texts = Arrays.copyOf(texts, texts.length * 2);
+                linePos = Arrays.copyOf(linePos, linePos.length * 2);
+            }
+            int o = lineCount * 3;
+            texts[lineCount++] = text;
+            linePos[o] = x;
+            linePos[o + 1] = y;
+            linePos[o + 2] = color;
+        }
 
-    // Simple stable username colors (Twitch-ish vibe)
-    private static int colorFor(String name) {
-        int h = name.hashCode();
-        // generate a bright-ish color
-        int r = 120 + (Math.abs(h) % 100);
-        int g = 120 + (Math.abs(h / 7) % 100);
-        int b = 120 + (Math.abs(h / 13) % 100);
-        r = Math.min(255, r);
-        g = Math.min(255, g);
-        b = Math.min(255, b);
-        return (0xFF << 24) | (r << 16) | (g << 8) | b;
+        void replay(GuiGraphics g, Font font) {
+            for (int i = 0; i < rectCount; i++) {
+                int o = i * 5;
+                g.fill(rects[o], rects[o + 1], rects[o + 2], rects[o + 3], rects[o + 4]);
+            }
+            g.drawString(font, titleText, titleX, titleY, TITLE_COLOR, false);
+            for (int i = 0; i < lineCount; i++) {
+                int o = i * 3;
+                g.drawString(font, texts[i], linePos[o], linePos[o + 1], linePos[o + 2], false);
+            }
+        }
     }
 }
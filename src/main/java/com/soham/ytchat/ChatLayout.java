@@ -0,0 +1,317 @@
+package com.soham.ytchat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The HUD chat panel minus Minecraft: a fixed ring of wrapped entries, the immutable
+ * snapshots the renderer draws, and the panel geometry. Glyph widths come from a
+ * {@link TextMetrics}, so wrapping and layout run headless in benchmarks. The owner
+ * (the client tick in game) is the only writer; snapshots can be read from any thread.
+ */
+final class ChatLayout {
+
+    // === "Smaller" look without scaling the matrix ===
+    // Instead: reduce widths/heights + line spacing to feel smaller.
+    // (Font size itself can't be changed without scaling.)
+    static final int BOX_MARGIN = 6;
+    static final int BOX_PADDING = 3;
+    static final int BOX_W = 170;     // narrower
+    static final int MAX_BOX_H = 105; // shorter
+    static final int WRAP_W = BOX_W - (BOX_PADDING * 2);
+
+    // Colors
+    private static final int HEADER_BG = 0xCC1E3A8A; // bluish header
+    private static final int BODY_BG   = 0x99000000; // translucent black
+    private static final int BORDER    = 0x66000000;
+    private static final int MSG_COLOR = 0xFFFFFFFF; // white message
+
+    /**
+     * One chat message plus its wrapped lines. Immutable; a relayout or a new repeat count
+     * makes a new entry. A merged flood group from several authors has no prefix.
+     */
+    static final class Entry {
+        final String prefix;
+        final String msg;
+        final int authorColor;
+        final FloodAggregator.Group group;
+
+        // lines[0, headLines) are the username, the rest the message
+        final String[] lines;
+        final int headLines;
+
+        private Entry(String prefix, String msg, int authorColor, FloodAggregator.Group group,
+                      TextMetrics metrics, int wrapW, List<String> scratch) {
+            this.prefix = prefix;
+            this.msg = msg;
+            this.authorColor = authorColor;
+            this.group = group;
+
+            // Username (colored) on its own line, then message lines under it
+            String shownPrefix = (group != null && group.mixedAuthors) ? null : prefix;
+            String shown = (group != null && group.count > 1) ? msg + " \u00d7" + group.count : msg;
+            scratch.clear();
+            if (shownPrefix != null) wrap(shownPrefix, metrics, wrapW, scratch);
+            this.headLines = scratch.size();
+            wrap(shown, metrics, wrapW, scratch);
+            this.lines = scratch.toArray(new String[0]);
+        }
+    }
+
+    /** Entries oldest first, as of one tick. */
+    record Snapshot(Entry[] entries, int totalLines, String title) {}
+
+    /** Where a panel goes: straight to the screen, or into a list to replay. */
+    interface PanelSink {
+        void fill(int x0, int y0, int x1, int y1, int color);
+        void title(String text, int x, int y);
+        void line(String text, int x, int y, int color);
+    }
+
+    // Fixed ring of entries, oldest at head
+    private final Entry[] entries;
+    private int head = 0;
+    private int count = 0;
+    private int totalLines = 0;
+
+    // Sequence number the next pushed entry gets; the ring holds [nextSeq - count, nextSeq)
+    private long nextSeq = 0;
+
+    // Entries whose group grew and need their count redrawn
+    private final boolean[] dirty;
+    private boolean anyDirty;
+
+    private TextMetrics metrics;
+    private int wrapW;
+    private final ArrayList<String> scratch = new ArrayList<>();
+
+    ChatLayout(int capacity, TextMetrics metrics, int wrapW) {
+        this.entries = new Entry[capacity];
+        this.dirty = new boolean[capacity];
+        this.metrics = metrics;
+        this.wrapW = wrapW;
+    }
+
+    int capacity() {
+        return entries.length;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /** Wrap a new message and append it, dropping the oldest entry when full. @return its sequence number */
+    long push(String prefix, String msg, int authorColor, FloodAggregator.Group group) {
+        Entry e = new Entry(printable(prefix), printable(msg), authorColor, group, metrics, wrapW, scratch);
+        int cap = entries.length;
+        int slot;
+        if (count == cap) {
+            slot = head;
+            totalLines -= entries[head].lines.length;
+            head = (head + 1) % cap;
+        } else {
+            slot = (head + count) % cap;
+            count++;
+        }
+        entries[slot] = e;
+        dirty[slot] = false;
+        totalLines += e.lines.length;
+        return nextSeq++;
+    }
+
+    /** Ring slot of the entry pushed as {@code seq}, or -1 if it has scrolled out. */
+    int slotOf(long seq) {
+        long oldest = nextSeq - count;
+        if (seq < oldest || seq >= nextSeq) return -1;
+        return (int) ((head + (seq - oldest)) % entries.length);
+    }
+
+    /** The entry's flood group grew; it is re-wrapped by the next {@link #refreshDirty}. */
+    void markDirty(int slot) {
+        dirty[slot] = true;
+        anyDirty = true;
+    }
+
+    /** Re-wrap entries whose flood group grew; at most once per entry per call. @return whether any were */
+    boolean refreshDirty() {
+        if (!anyDirty) return false;
+        for (int i = 0; i < entries.length; i++) {
+            if (!dirty[i]) continue;
+            dirty[i] = false;
+            Entry e = entries[i];
+            Entry fresh = new Entry(e.prefix, e.msg, e.authorColor, e.group, metrics, wrapW, scratch);
+            totalLines += fresh.lines.length - e.lines.length;
+            entries[i] = fresh;
+        }
+        anyDirty = false;
+        return true;
+    }
+
+    /** Re-wrap every entry, for a new font, GUI scale or panel width. */
+    void relayout(TextMetrics metrics, int wrapW) {
+        this.metrics = metrics;
+        this.wrapW = wrapW;
+        totalLines = 0;
+        for (int k = 0; k < count; k++) {
+            int i = (head + k) % entries.length;
+            Entry e = entries[i];
+            entries[i] = new Entry(e.prefix, e.msg, e.authorColor, e.group, metrics, wrapW, scratch);
+            totalLines += entries[i].lines.length;
+        }
+    }
+
+    Snapshot snapshot(String title) {
+        Entry[] out = new Entry[count];
+        for (int k = 0; k < count; k++) out[k] = entries[(head + k) % entries.length];
+        return new Snapshot(out, totalLines, title);
+    }
+
+    /** Lays out the whole panel for a screen width and hands every rect and line to the sink. */
+    static void emitPanel(PanelSink out, Snapshot snap, int sw, int fontLineH) {
+        final int headerH = fontLineH + 3;
+        final int lineH = fontLineH; // tighter than +1/+2
+
+        // Top-right anchor
+        int x0 = sw - BOX_W - BOX_MARGIN;
+        int y0 = BOX_MARGIN;
+
+        int bodyH = (snap.totalLines() * lineH) + (BOX_PADDING * 2);
+        int boxH = Math.min(headerH + bodyH, MAX_BOX_H);
+
+        // Background + header
+        out.fill(x0, y0, x0 + BOX_W, y0 + boxH, BODY_BG);
+        out.fill(x0, y0, x0 + BOX_W, y0 + headerH, HEADER_BG);
+
+        // Border
+        out.fill(x0, y0, x0 + BOX_W, y0 + 1, BORDER);
+        out.fill(x0, y0 + boxH - 1, x0 + BOX_W, y0 + boxH, BORDER);
+        out.fill(x0, y0, x0 + 1, y0 + boxH, BORDER);
+        out.fill(x0 + BOX_W - 1, y0, x0 + BOX_W, y0 + boxH, BORDER);
+
+        // Header label
+        out.title(snap.title(), x0 + BOX_PADDING, y0 + 1);
+
+        // Draw bottom-up, stopping at the first line that doesn't fit
+        int bodyTop = y0 + headerH + BOX_PADDING;
+        int bodyBottom = y0 + boxH - BOX_PADDING;
+
+        int y = bodyBottom - lineH;
+
+        Entry[] entries = snap.entries();
+        for (int k = entries.length - 1; k >= 0 && y >= bodyTop; k--) {
+            Entry e = entries[k];
+            String[] lines = e.lines;
+            for (int i = lines.length - 1; i >= 0; i--) {
+                if (y < bodyTop) break;
+                int color = (i < e.headLines) ? e.authorColor : MSG_COLOR;
+                out.line(lines[i], x0 + BOX_PADDING, y, color);
+                y -= lineH;
+            }
+        }
+    }
+
+    // --------------------------
+    // Line breaking
+    // --------------------------
+
+    /**
+     * Break {@code s} into lines no wider than {@code maxW} and add them to {@code out}.
+     * Lines end at a space (which is dropped) or next to a CJK character or emoji, which
+     * may break anywhere; a word longer than a line is split where it overflows, but not
+     * inside an emoji sequence unless that alone is wider than a line. Always adds at
+     * least one line.
+     */
+    static void wrap(String s, TextMetrics m, int maxW, List<String> out) {
+        int n = s.length();
+        int start = 0;          // first char of the current line
+        int w = 0;              // width of s[start, i)
+        int brk = -1;           // the current line may end here...
+        int resume = -1;        // ...and the next one then starts here
+        int wAtResume = 0;      // width of s[start, resume)
+        int cluster = 0;        // where the char sequence s[i] belongs to starts
+        int wAtCluster = 0;     // width of s[start, cluster)
+        boolean prevWide = false;
+        boolean prevZwj = false;
+
+        int i = 0;
+        while (i < n) {
+            int cp = s.codePointAt(i);
+            int adv = m.advance(cp);
+
+            if (cp == ' ') {
+                // Spaces never wrap by themselves; a line may end before one
+                brk = i;
+                resume = i + 1;
+                w += adv;
+                wAtResume = w;
+                prevWide = false;
+                prevZwj = false;
+                i++;
+                continue;
+            }
+
+            boolean wide = breaksAnywhere(cp);
+            boolean join = joins(cp);
+            // A mark belongs to the char before it, and a ZWJ glues its neighbours together
+            if (!join && !prevZwj) {
+                cluster = i;
+                wAtCluster = w;
+                if ((wide || prevWide) && i > start) {
+                    brk = i;
+                    resume = i;
+                    wAtResume = w;
+                }
+            }
+
+            if (w + adv > maxW && i > start) {
+                if (brk > start) {
+                    out.add(s.substring(start, brk));
+                    w -= wAtResume;
+                    wAtCluster -= wAtResume;
+                    start = resume;
+                } else if (cluster > start) {
+                    out.add(s.substring(start, cluster));
+                    w -= wAtCluster;
+                    wAtCluster = 0;
+                    start = cluster;
+                } else {
+                    out.add(s.substring(start, i));
+                    w = 0;
+                    start = i;
+                }
+                brk = -1;
+                // Look at this char again, now on the new line
+                continue;
+            }
+
+            w += adv;
+            // Marks take on the char they follow: an emoji plus a variation selector still breaks like an emoji
+            prevWide = join ? prevWide || wide : wide;
+            prevZwj = cp == 0x200D;
+            i += Character.charCount(cp);
+        }
+        if (start < n || out.isEmpty()) out.add(s.substring(start));
+    }
+
+    /** Scripts written without spaces, and emoji: a line can break before or after any of them. */
+    private static boolean breaksAnywhere(int cp) {
+        if (cp < 0x2E80) return cp >= 0x2600 && cp <= 0x27BF;    // misc symbols and dingbats
+        if (cp >= 0x1F000) return true;                         // emoji and pictographs
+        if (Character.isIdeographic(cp)) return true;
+        Character.UnicodeScript sc = Character.UnicodeScript.of(cp);
+        return sc == Character.UnicodeScript.HIRAGANA || sc == Character.UnicodeScript.KATAKANA
+                || sc == Character.UnicodeScript.HANGUL;
+    }
+
+    /** Marks that belong to the char before them: never break in front of one. */
+    private static boolean joins(int cp) {
+        if (cp == 0x200D || (cp >= 0xFE00 && cp <= 0xFE0F) || (cp >= 0x1F3FB && cp <= 0x1F3FF)) return true;
+        int type = Character.getType(cp);
+        return type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK;
+    }
+
+    /** drawString(String) reads the section sign as a formatting code; chat text must not be able to restyle the HUD. */
+    private static String printable(String msg) {
+        return (msg.indexOf('\u00a7') < 0) ? msg : msg.replace("\u00a7", "");
+    }
+}
@@ -0,0 +1,92 @@
+package com.soham.ytchat;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Plays a {@link ChatCapture} back through the same parser polls use
+ * ({@link YouTubeLiveChatClient#consumeResponse}), with the recorded gaps between
+ * responses scaled by {@code speed}. Used as a chat source with a URL like
+ * {@code replay:captures/stream.ytcap?speed=4}, or headless via {@link #run}.
+ */
+final class ChatReplay implements Closeable {
+
+    static final String SCHEME = "replay:";
+
+    private final ChatCapture.Reader reader;
+    private final double speed;
+    private final String label;
+
+    // One client per captured stream, so each keeps its own continuation and dedupe window
+    private final Map<String, YouTubeLiveChatClient> clients = new HashMap<>();
+
+    private ChatCapture.Record pending;
+
+    /** @param speed 1 for real time, N for N times faster, 0 for as fast as possible */
+    ChatReplay(Path file, double speed, String label) throws IOException {
+        this.reader = new ChatCapture.Reader(file);
+        this.speed = speed;
+        this.label = label;
+        this.pending = reader.next();
+    }
+
+    static boolean isReplayUrl(String url) {
+        return url != null && url.startsWith(SCHEME);
+    }
+
+    /** replay:&lt;path&gt;[?speed=N] */
+    static ChatReplay open(String url, String label) throws IOException {
+        String spec = url.substring(SCHEME.length());
+        double speed = 1;
+        int q = spec.indexOf("?speed=");
+        if (q >= 0) {
+            try { speed = Math.max(0, Double.parseDouble(spec.substring(q + 7))); }
+            catch (NumberFormatException e) { throw new IllegalArgumentException("Bad replay speed in " + url); }
+            spec = spec.substring(0, q);
+        }
+        return new ChatReplay(Path.of(spec), speed, label);
+    }
+
+    boolean finished() {
+        return pending == null;
+    }
+
+    /**
+     * Parses the next recorded response into {@code out}.
+     *
+     * @return how long to wait before the next step, or -1 once the capture is exhausted
+     */
+    long step(Consumer<Chat> out) throws IOException {
+        ChatCapture.Record r = pending;
+        if (r == null) return -1;
+
+        YouTubeLiveChatClient yt = clients.computeIfAbsent(String.valueOf(r.source()),
+                s -> new YouTubeLiveChatClient(label, new MessageDeduper(4096, 0)));
+        yt.consumeResponse(new ByteArrayInputStream(r.body()), out);
+
+        pending = reader.next();
+        if (pending == null) return -1;
+        if (speed == 0) return 0;
+        return Math.max(0, (long) ((pending.atMs() - r.atMs()) / speed));
+    }
+
+    /** Plays the whole capture on the calling thread. */
+    static void run(Path file, double speed, Consumer<Chat> out) throws IOException, InterruptedException {
+        try (ChatReplay replay = new ChatReplay(file, speed, null)) {
+            long delayMs;
+            while ((delayMs = replay.step(out)) >= 0) {
+                if (delayMs > 0) Thread.sleep(delayMs);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,131 @@
+package com.soham.ytchat;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded single-producer/single-consumer ring for incoming chat.
+ *
+ * The scraper thread is the only producer (offer) and the render/client thread the only
+ * consumer (poll, clear). Slots are reused, so publishing allocates nothing. When the
+ * ring is full the {@link OverflowPolicy} decides what gets lost.
+ */
+public final class ChatRingBuffer {
+
+    public enum OverflowPolicy {
+        /** Evict the oldest unread message to make room. */
+        DROP_OLDEST,
+        /** Discard the incoming message. */
+        DROP_NEWEST,
+        /** Discard incoming messages but leave one "N messages skipped" line once there is room. */
+        COALESCE
+    }
+
+    private final Chat[] slots;
+    private final int mask;
+    private final OverflowPolicy policy;
+
+    // head: next slot to read. Advanced by the consumer, and by the producer under DROP_OLDEST, so CAS.
+    private final AtomicLong head = new AtomicLong();
+    // tail: next slot to write. Producer only.
+    private final AtomicLong tail = new AtomicLong();
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile int highWater;
+
+    // Producer only: messages swallowed by COALESCE that haven't been reported yet
+    private long coalesced;
+
+    public ChatRingBuffer(int capacity, OverflowPolicy policy) {
+        int cap = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new Chat[cap];
+        this.mask = cap - 1;
+        this.policy = policy;
+    }
+
+    /** Producer side. @return false if the message was dropped */
+    public boolean offer(Chat c) {
+        long t = tail.get();
+
+        if (policy == OverflowPolicy.COALESCE && coalesced > 0) {
+            // Need room for the summary line and this message
+            if (t - head.get() + 2 > slots.length) {
+                coalesced++;
+                dropped.incrementAndGet();
+                return false;
+            }
+            publish(t++, Chat.status(coalesced + " messages skipped (chat too fast)"));
+            coalesced = 0;
+        }
+
+        if (t - head.get() >= slots.length) {
+            switch (policy) {
+                case DROP_OLDEST -> {
+                    // Skip the oldest unread slot; if the consumer read it first, that's fine too
+                    long h = head.get();
+                    if (t - h >= slots.length && head.compareAndSet(h, h + 1)) {
+                        dropped.incrementAndGet();
+                    }
+                }
+                case DROP_NEWEST -> {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                case COALESCE -> {
+                    coalesced++;
+                    dropped.incrementAndGet();
+                    return false;
+                }
+            }
+        }
+
+        publish(t, c);
+        return true;
+    }
+
+    private void publish(long t, Chat c) {
+        slots[(int) (t & mask)] = c;
+        tail.lazySet(t + 1);
+        enqueued.incrementAndGet();
+
+        int size = (int) (t + 1 - head.get());
+        if (size > highWater) highWater = size;
+    }
+
+    /** Consumer side. @return the oldest message, or null if empty */
+    public Chat poll() {
+        while (true) {
+            long h = head.get();
+            if (h >= tail.get()) return null;
+            Chat c = slots[(int) (h & mask)];
+            // Fails only if the producer evicted this slot under DROP_OLDEST; then re-read
+            if (head.compareAndSet(h, h + 1)) return c;
+        }
+    }
+
+    /** Consumer side: discard everything currently queued. */
+    public void clear() {
+        while (true) {
+            long h = head.get();
+            long t = tail.get();
+            if (h >= t || head.compareAndSet(h, t)) return;
+        }
+    }
+
+    public int size() {
+        long s = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(s, slots.length));
+    }
+
+    public int capacity() { return slots.length; }
+    public OverflowPolicy policy() { return policy; }
+    public long enqueuedCount() { return enqueued.get(); }
+    public long droppedCount() { return dropped.get(); }
+    public int highWaterMark() { return highWater; }
+
+    @Override
+    public String toString() {
+        return "size=" + size() + "/" + capacity() + " enqueued=" + enqueuedCount() +
+                " dropped=" + droppedCount() + " highWater=" + highWater + " policy=" + policy;
+    }
+}
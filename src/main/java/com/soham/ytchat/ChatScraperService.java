@@ -1,90 +1,211 @@
 package com.soham.ytchat;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 public final class ChatScraperService {
 
-    private final ScheduledExecutorService exec =
+    // Timing and merging. This thread is the only producer for `incoming`.
+    final ScheduledExecutorService exec =
             Executors.newSingleThreadScheduledExecutor(r -> {
                 Thread t = new Thread(r, "ytchat-scraper");
                 t.setDaemon(true);
                 return t;
             });
 
-    private final YouTubeLiveChatClient yt = new YouTubeLiveChatClient();
-    public final ConcurrentLinkedQueue<Chat> incoming = new ConcurrentLinkedQueue<>();
-    private volatile long lastErrorAtMs = 0;
-    private volatile String lastErrorKey = null;
-    
-    private ScheduledFuture<?> task;
+    // HTTP + parsing, one virtual thread per in-flight poll, so streams never wait on each other
+    final ExecutorService io =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ytchat-poll-", 0).factory());
 
-    private volatile String url;
-    private volatile boolean initialized;
+    private static final long MERGE_FLUSH_MS = 100;
 
-    // Prevent HUD spam
-    private volatile long lastErrorMs = 0;
+    // Written only from the scraper thread, read only from the client thread
+    public final ChatRingBuffer incoming =
+            new ChatRingBuffer(Config.getIngestCapacity(), Config.getIngestOverflow());
+    public final PollStats stats = new PollStats();
 
-    public void start(String url) {
-        restart(url);
+    // Scraper thread only
+    private final FeedMerger merger = new FeedMerger(incoming.capacity());
+
+    private volatile List<StreamPoller> pollers = List.of();
+    private ScheduledFuture<?> flushTask;
+
+    // Raw response capture, shared by all pollers; kept open across restarts while the file is unchanged
+    private ChatCapture.Writer recorder;
+    private String recorderFile = "";
+
+    // Last good session per video ID, so restarts skip the page fetch
+    final SessionCache sessions = new SessionCache(Path.of("ytchat", "sessions.json"));
+
+    // On-disk scrollback; written on the scraper thread, read by the history screen
+    private volatile ChatHistory history;
+
+    // Bumped on every restart so poll chains from the old URLs stop rescheduling themselves
+    private volatile int session;
+
+    // Cancelled on every restart, aborting requests still in flight for the old URLs
+    private CancelToken cancel = new CancelToken();
+
+    /** Changes on every restart and on shutdown; state kept per chat source can be reset when it does. */
+    public int session() {
+        return session;
+    }
+
+    public void start(List<String> urls) {
+        restart(urls);
     }
 
-    public void restart(String url) {
-        stopTask();
+    public synchronized void restart(List<String> urls) {
+        stopTasks();
         incoming.clear();
 
-        this.url = (url == null) ? "" : url.trim();
-        this.initialized = false;
-        this.lastErrorMs = 0;
+        int s = ++session;
+        cancel = new CancelToken();
+        openRecorder(Config.getCaptureFile());
+
+        List<StreamPoller> next = new ArrayList<>();
+        for (String u : urls) {
+            if (u == null || u.isBlank()) continue;
+            next.add(new StreamPoller(this, s, cancel, Integer.toString(next.size() + 1), u.trim()));
+        }
+        pollers = List.copyOf(next);
+
+        exec.execute(() -> {
+            sessions.save();
+            openHistory();
+            merger.clear();
+            incoming.offer(Chat.status("Restarting live chat fetch..."));
+        });
+
+        for (StreamPoller p : pollers) p.schedule(0);
+        flushTask = exec.scheduleWithFixedDelay(() -> flush(s), MERGE_FLUSH_MS, MERGE_FLUSH_MS, TimeUnit.MILLISECONDS);
+    }
+
+    ChatCapture.Writer recorder() {
+        return recorder;
+    }
+
+    private void openRecorder(String file) {
+        if (file.equals(recorderFile)) return;
+        closeRecorder();
+        recorderFile = file;
+        if (file.isEmpty()) return;
+        try {
+            recorder = new ChatCapture.Writer(Path.of(file));
+        } catch (Exception e) {
+            Log.LOGGER.warn("Could not open capture file {}", file, e);
+            exec.execute(() -> incoming.offer(Chat.status("Could not open capture file: " + file)));
+        }
+    }
 
-        yt.reset();
+    private void closeRecorder() {
+        if (recorder == null) return;
+        try { recorder.close(); }
+        catch (Exception ignored) {}
+        recorder = null;
+    }
 
-        incoming.add(new Chat("YTCHAT", "Restarting live chat fetch..."));
+    /** The on-disk chat history, or null if it is disabled or could not be opened. */
+    public ChatHistory history() {
+        return history;
+    }
 
-        task = exec.scheduleAtFixedRate(() -> {
-            String u = this.url;
-            if (u == null || u.isBlank()) return;
+    // Scraper thread
+    private void openHistory() {
+        if (history != null || !Config.isHistoryEnabled()) return;
+        try {
+            history = ChatHistory.open(Path.of("ytchat", "history"),
+                    Config.getHistoryRetentionMs(), Config.getHistoryMaxBytes());
+        } catch (Exception e) {
+            Log.LOGGER.error("Could not open the chat history; it stays off this session", e);
+        }
+    }
 
-            try {
-                if (!initialized) {
-                    yt.initFromStreamUrl(u);
-                    initialized = true;
-                    incoming.add(new Chat("YTCHAT", "Connected. Polling chat..."));
-                }
+    // Scraper thread: everything the merger releases goes to disk and to the HUD
+    private void publish(Chat c) {
+        ChatHistory h = history;
+        // Status lines carry no timestamp and are not chat
+        if (h != null && c.timestampMs() > 0) h.append(c);
+        incoming.offer(c);
+    }
 
-                yt.pollOnce(incoming);
+    /** Connection state of every stream being watched, in URL order. */
+    public List<StreamRecovery.Status> streamStatus() {
+        List<StreamPoller> ps = pollers;
+        List<StreamRecovery.Status> out = new ArrayList<>(ps.size());
+        for (StreamPoller p : ps) out.add(p.recovery.status());
+        return out;
+    }
 
-            } catch (Exception e) {
-                // Show the real message, but throttle to avoid spam
-                String msg = e.getMessage();
-                if (msg == null) msg = "";
-                String key = e.getClass().getSimpleName() + "|" + msg;
+    /** Number of streams being watched; the HUD tags messages with their source when > 1. */
+    public int streamCount() {
+        return pollers.size();
+    }
 
-                long now = System.currentTimeMillis();
-                if (!key.equals(lastErrorKey) || now - lastErrorAtMs > 10_000) {
-                    lastErrorKey = key;
-                    lastErrorAtMs = now;
+    boolean isCurrent(int s) {
+        return s == session;
+    }
+
+    /** Called from a poll thread with everything one poll produced. */
+    void deliver(int s, List<Chat> batch) {
+        // Filtered here, on the poll thread, so the scraper thread only merges
+        int filtered = ChatFilter.current().apply(batch);
+        if (filtered > 0) {
+            stats.addFiltered(filtered);
+            Metrics.FILTERED.add(filtered);
+        }
+        if (batch.isEmpty()) return;
+        exec.execute(() -> {
+            if (s != session) return;
+            long now = System.currentTimeMillis();
+            for (Chat c : batch) merger.add(c, now, this::publish);
+            flush(s);
+        });
+    }
 
-                    incoming.add(new Chat("YTCHAT", "Error: " + e.getClass().getSimpleName()));
-                    if (!msg.isBlank()) incoming.add(new Chat("YTCHAT", msg));
-                }
+    private void flush(int s) {
+        if (s != session) return;
+        merger.flush(watermarkMs(), System.currentTimeMillis(), Config.getMergeMaxDelayMs(), this::publish);
+    }
 
-                // Also print stack trace to the console/log for debugging
-                e.printStackTrace();
-            }
+    /** Oldest point every healthy stream has polled past. With one stream there is nothing to order. */
+    private long watermarkMs() {
+        List<StreamPoller> ps = pollers;
+        if (ps.size() <= 1) return Long.MAX_VALUE;
 
-        }, 0, 30, TimeUnit.SECONDS);
+        long wm = Long.MAX_VALUE;
+        for (StreamPoller p : ps) {
+            if (p.healthy) wm = Math.min(wm, p.watermarkMs);
+        }
+        return wm;
     }
 
-    private void stopTask() {
-        if (task != null) {
-            task.cancel(false);
-            task = null;
+    private void stopTasks() {
+        cancel.cancel();
+        for (StreamPoller p : pollers) p.cancel();
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
         }
     }
 
-    public void shutdown() {
-        stopTask();
-        exec.shutdownNow();
+    public synchronized void shutdown() {
+        session++;
+        stopTasks();
+        // Let the scraper thread finish what it is writing, then seal the history segment
+        exec.execute(() -> {
+            sessions.save();
+            if (history != null) history.close();
+        });
+        exec.shutdown();
+        io.shutdownNow();
+        closeRecorder();
+    }
+
+    /** Wait for the work queued by {@link #shutdown()} to finish. @return false on timeout */
+    public boolean awaitTermination(long timeoutMs) throws InterruptedException {
+        return exec.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
     }
 }
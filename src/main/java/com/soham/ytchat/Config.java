@@ -6,15 +6,131 @@ import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.config.ModConfig;
 import net.minecraftforge.fml.event.config.ModConfigEvent;
 
+import java.util.LinkedHashSet;
+import java.util.List;
+
 @Mod.EventBusSubscriber(modid = ExampleMod.MODID, bus = Mod.EventBusSubscriber.Bus.MOD)
 public final class Config {
     private static final ForgeConfigSpec.Builder BUILDER = new ForgeConfigSpec.Builder();
 
     // Stored in ytchat-client.toml
     public static final ForgeConfigSpec.ConfigValue<String> CHAT_URL = BUILDER
-            .comment("YouTube stream URL or watch URL. Must start with http:// or https://")
+            .comment("YouTube stream URL or watch URL. Must start with http:// or https://, or be replay:<capture file>[?speed=N] to play back a capture.")
             .define("chatUrl", "https://example.com");
 
+    public static final ForgeConfigSpec.ConfigValue<List<? extends String>> EXTRA_CHAT_URLS = BUILDER
+            .comment("More stream URLs to watch at the same time as chatUrl (co-streams). Messages are merged by time.")
+            .defineList("extraChatUrls", List.of(), o -> o instanceof String s && isValidUrl(s));
+
+    public static final ForgeConfigSpec.IntValue MERGE_MAX_DELAY_MS = BUILDER
+            .comment("With several streams, how long a message may be held back to keep the merged feed in time order.")
+            .defineInRange("mergeMaxDelayMs", 2_000, 0, 30_000);
+
+    // Poll scheduling: the server's timeoutMs is clamped into [pollMinMs, pollMaxMs]
+    public static final ForgeConfigSpec.IntValue POLL_MIN_MS = BUILDER
+            .comment("Shortest delay between chat polls, in milliseconds.")
+            .defineInRange("pollMinMs", 500, 100, 60_000);
+
+    public static final ForgeConfigSpec.IntValue POLL_MAX_MS = BUILDER
+            .comment("Longest delay between chat polls, in milliseconds. Used when the server gives no timeout.")
+            .defineInRange("pollMaxMs", 10_000, 250, 300_000);
+
+    public static final ForgeConfigSpec.IntValue ERROR_BACKOFF_MAX_MS = BUILDER
+            .comment("Upper bound for the retry delay after repeated errors, in milliseconds.")
+            .defineInRange("errorBackoffMaxMs", 60_000, 1_000, 600_000);
+
+    public static final ForgeConfigSpec.IntValue CIRCUIT_BREAKER_FAILURES = BUILDER
+            .comment("After this many failed attempts in a row, stop requesting a stream's chat for circuitBreakerOpenSeconds.")
+            .defineInRange("circuitBreakerFailures", 8, 1, 1_000);
+
+    public static final ForgeConfigSpec.IntValue CIRCUIT_BREAKER_OPEN_SECONDS = BUILDER
+            .comment("How long a failing stream is left alone before it is tried again, in seconds. Doubles each time it fails again, up to an hour.")
+            .defineInRange("circuitBreakerOpenSeconds", 120, 5, 3_600);
+
+    public static final ForgeConfigSpec.IntValue BACKFILL_MAX_MESSAGES = BUILDER
+            .comment("After a reconnect or restart, show at most this many of the messages sent while chat was away (the newest ones). 0 skips them all.")
+            .defineInRange("backfillMaxMessages", 200, 0, 5_000);
+
+    public static final ForgeConfigSpec.IntValue INGEST_CAPACITY = BUILDER
+            .comment("How many received messages can wait for the HUD before the overflow policy kicks in. Rounded up to a power of two.")
+            .defineInRange("ingestCapacity", 1024, 16, 65_536);
+
+    public static final ForgeConfigSpec.EnumValue<ChatRingBuffer.OverflowPolicy> INGEST_OVERFLOW = BUILDER
+            .comment("What to do when the ingest buffer is full: DROP_OLDEST, DROP_NEWEST or COALESCE (drop and show a skipped-count line).")
+            .defineEnum("ingestOverflow", ChatRingBuffer.OverflowPolicy.DROP_OLDEST);
+
+    public static final ForgeConfigSpec.IntValue DEDUPE_WINDOW = BUILDER
+            .comment("How many recent message IDs each stream remembers exactly to drop replayed messages.")
+            .defineInRange("dedupeWindow", 4096, 64, 1_000_000);
+
+    public static final ForgeConfigSpec.BooleanValue DEDUPE_BLOOM = BUILDER
+            .comment("Also catch replays older than dedupeWindow with a Bloom filter. Fixed memory, but a false positive drops a real, new message: up to about 2% of new messages may be wrongly hidden (two generations at about 1% each).")
+            .define("dedupeBloom", false);
+
+    public static final ForgeConfigSpec.IntValue DEDUPE_BLOOM_CAPACITY = BUILDER
+            .comment("Message IDs per Bloom filter generation (two generations are kept).")
+            .defineInRange("dedupeBloomCapacity", 100_000, 1_000, 10_000_000);
+
+    public static final ForgeConfigSpec.IntValue HUD_DRAIN_BUDGET_US = BUILDER
+            .comment("Time per client tick (20 per second) spent moving received messages into the HUD, in microseconds. Whatever is left waits for the next tick.")
+            .defineInRange("hudDrainBudgetUs", 1_000, 50, 20_000);
+
+    public static final ForgeConfigSpec.BooleanValue FLOOD_AGGREGATE = BUILDER
+            .comment("Show repeated messages (\"W\", \"W w\", \"WWW!\") as one entry with a count, and sample new messages while chat is very fast.")
+            .define("floodAggregate", true);
+
+    public static final ForgeConfigSpec.IntValue FLOOD_WINDOW_SECONDS = BUILDER
+            .comment("How long after its latest copy a message can still be merged into, in seconds.")
+            .defineInRange("floodWindowSeconds", 10, 1, 300);
+
+    public static final ForgeConfigSpec.IntValue FLOOD_RATE_THRESHOLD = BUILDER
+            .comment("Messages per second above which only a sample of new messages is shown.")
+            .defineInRange("floodRateThreshold", 15, 1, 10_000);
+
+    public static final ForgeConfigSpec.ConfigValue<List<? extends String>> FILTER_KEYWORDS = BUILDER
+            .comment("Hide messages containing any of these words (case-insensitive, whole words). Put * at the start or end of a term to also match inside words, e.g. \"spam*\".")
+            .defineList("filterKeywords", List.of(), o -> o instanceof String);
+
+    public static final ForgeConfigSpec.ConfigValue<String> FILTER_KEYWORD_FILE = BUILDER
+            .comment("Optional file (relative to the game directory) with more blocked terms, one per line. Lines starting with # are ignored.")
+            .define("filterKeywordFile", "");
+
+    public static final ForgeConfigSpec.ConfigValue<List<? extends String>> FILTER_AUTHOR_RULES = BUILDER
+            .comment("Hide messages matching a regular expression, per author: \"<name or channel ID>:<regex>\". Use * as the author to apply a rule to everyone, e.g. \"*:https?://\".")
+            .defineList("filterAuthorRules", List.of(), o -> o instanceof String s && s.indexOf(':') > 0);
+
+    public static final ForgeConfigSpec.EnumValue<HudRenderMode> HUD_RENDER_MODE = BUILDER
+            .comment("IMMEDIATE lays out and draws the chat box every frame; CACHED_LAYOUT keeps the positioned layout until chat or window size changes and only reissues the draws.")
+            .defineEnum("hudRenderMode", HudRenderMode.CACHED_LAYOUT);
+
+    public static final ForgeConfigSpec.ConfigValue<String> CAPTURE_FILE = BUILDER
+            .comment("If set, every raw chat response is appended to this file (relative to the game directory) for offline replay with a replay:<file> chat URL.")
+            .define("captureFile", "");
+
+    public static final ForgeConfigSpec.BooleanValue HISTORY_ENABLED = BUILDER
+            .comment("Keep chat history on disk (ytchat/history in the game directory) for the scrollback screen.")
+            .define("historyEnabled", true);
+
+    public static final ForgeConfigSpec.IntValue HISTORY_RETENTION_HOURS = BUILDER
+            .comment("Delete history older than this many hours.")
+            .defineInRange("historyRetentionHours", 48, 1, 24 * 365);
+
+    public static final ForgeConfigSpec.IntValue HISTORY_MAX_MB = BUILDER
+            .comment("Delete the oldest history once it takes more than this many megabytes on disk.")
+            .defineInRange("historyMaxMb", 256, 8, 65_536);
+
+    public static final ForgeConfigSpec.IntValue DISCOVERY_HEDGE_MS = BUILDER
+            .comment("When connecting, also fetch the watch page if the popout page has not given up its tokens after this many milliseconds; the first to succeed wins. 0 fetches both at once, -1 only tries the watch page after the popout page fails.")
+            .defineInRange("discoveryHedgeMs", 750, -1, 15_000);
+
+    public static final ForgeConfigSpec.IntValue SESSION_CACHE_MINUTES = BUILDER
+            .comment("Reuse a stream's tokens from the last run for this many minutes, so chat shows up after one poll instead of a page fetch. 0 disables.")
+            .defineInRange("sessionCacheMinutes", 60, 0, 24 * 60);
+
+    public static final ForgeConfigSpec.BooleanValue DEBUG_METRICS = BUILDER
+            .comment("Collect timing metrics, show them in a debug panel on the HUD and publish them over JMX.")
+            .define("debugMetrics", false);
+
     public static final ForgeConfigSpec SPEC = BUILDER.build();
 
     // Keep a reference so GUI can save()
@@ -26,6 +142,8 @@ public final class Config {
     public static void onConfigLoad(final ModConfigEvent event) {
         if (event.getConfig().getType() == ModConfig.Type.CLIENT) {
             CLIENT_CONFIG = event.getConfig();
+            Metrics.setEnabled(DEBUG_METRICS.get());
+            ChatFilter.reload();
         }
     }
 
@@ -34,10 +152,134 @@ public final class Config {
         return (s == null) ? "" : s.trim();
     }
 
+    /** chatUrl followed by extraChatUrls, blanks and duplicates removed. */
+    public static List<String> getChatUrls() {
+        LinkedHashSet<String> urls = new LinkedHashSet<>();
+        String primary = getChatUrl();
+        if (!primary.isEmpty()) urls.add(primary);
+        for (String s : EXTRA_CHAT_URLS.get()) {
+            if (s != null && !s.isBlank()) urls.add(s.trim());
+        }
+        return List.copyOf(urls);
+    }
+
+    /** Stores the first URL as chatUrl and the rest as extraChatUrls. */
+    public static void setChatUrls(List<String> urls) {
+        CHAT_URL.set(urls.isEmpty() ? "" : urls.get(0));
+        EXTRA_CHAT_URLS.set(urls.size() > 1 ? List.copyOf(urls.subList(1, urls.size())) : List.of());
+    }
+
+    public static int getMergeMaxDelayMs() {
+        return MERGE_MAX_DELAY_MS.get();
+    }
+
+    public static int getPollMinMs() {
+        return POLL_MIN_MS.get();
+    }
+
+    public static int getPollMaxMs() {
+        return Math.max(POLL_MAX_MS.get(), getPollMinMs());
+    }
+
+    public static int getErrorBackoffMaxMs() {
+        return ERROR_BACKOFF_MAX_MS.get();
+    }
+
+    public static int getCircuitBreakerFailures() {
+        return CIRCUIT_BREAKER_FAILURES.get();
+    }
+
+    public static long getCircuitBreakerOpenMs() {
+        return CIRCUIT_BREAKER_OPEN_SECONDS.get() * 1_000L;
+    }
+
+    public static int getBackfillMaxMessages() {
+        return BACKFILL_MAX_MESSAGES.get();
+    }
+
+    public static int getIngestCapacity() {
+        return INGEST_CAPACITY.get();
+    }
+
+    public static ChatRingBuffer.OverflowPolicy getIngestOverflow() {
+        return INGEST_OVERFLOW.get();
+    }
+
+    public static int getDedupeWindow() {
+        return DEDUPE_WINDOW.get();
+    }
+
+    public static boolean isDedupeBloomEnabled() {
+        return DEDUPE_BLOOM.get();
+    }
+
+    public static int getDedupeBloomCapacity() {
+        return DEDUPE_BLOOM_CAPACITY.get();
+    }
+
+    public static long getHudDrainBudgetUs() {
+        return HUD_DRAIN_BUDGET_US.get();
+    }
+
+    public static boolean isFloodAggregateEnabled() {
+        return FLOOD_AGGREGATE.get();
+    }
+
+    public static long getFloodWindowMs() {
+        return FLOOD_WINDOW_SECONDS.get() * 1_000L;
+    }
+
+    public static int getFloodRateThreshold() {
+        return FLOOD_RATE_THRESHOLD.get();
+    }
+
+    public static List<? extends String> getFilterKeywords() {
+        return FILTER_KEYWORDS.get();
+    }
+
+    public static String getFilterKeywordFile() {
+        String s = FILTER_KEYWORD_FILE.get();
+        return (s == null) ? "" : s.trim();
+    }
+
+    public static List<? extends String> getFilterAuthorRules() {
+        return FILTER_AUTHOR_RULES.get();
+    }
+
+    public static HudRenderMode getHudRenderMode() {
+        return HUD_RENDER_MODE.get();
+    }
+
+    public static String getCaptureFile() {
+        String s = CAPTURE_FILE.get();
+        return (s == null) ? "" : s.trim();
+    }
+
+    public static boolean isHistoryEnabled() {
+        return HISTORY_ENABLED.get();
+    }
+
+    public static long getHistoryRetentionMs() {
+        return HISTORY_RETENTION_HOURS.get() * 3_600_000L;
+    }
+
+    public static long getHistoryMaxBytes() {
+        return HISTORY_MAX_MB.get() * 1_048_576L;
+    }
+
+    public static long getDiscoveryHedgeMs() {
+        return DISCOVERY_HEDGE_MS.get();
+    }
+
+    public static long getSessionCacheMs() {
+        return SESSION_CACHE_MINUTES.get() * 60_000L;
+    }
+
     public static boolean isValidUrl(String s) {
         if (s == null) return false;
         s = s.trim();
         if (s.isEmpty()) return false;
+        if (ChatReplay.isReplayUrl(s)) return s.length() > ChatReplay.SCHEME.length();
         if (!(s.startsWith("http://") || s.startsWith("https://"))) return false;
         try {
             new java.net.URI(s);
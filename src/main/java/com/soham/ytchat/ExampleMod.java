@@ -1,8 +1,8 @@
 package com.soham.ytchat;
 
-import com.mojang.logging.LogUtils;
 import net.minecraftforge.client.ConfigScreenHandler;
 import net.minecraftforge.client.event.AddGuiOverlayLayersEvent;
+import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.config.ModConfig;
 import net.minecraftforge.fml.event.lifecycle.FMLClientSetupEvent;
@@ -12,7 +12,7 @@ import org.slf4j.Logger;
 @Mod(ExampleMod.MODID)
 public final class ExampleMod {
     public static final String MODID = "ytchat";
-    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final Logger LOGGER = Log.LOGGER;
 
     private final FMLJavaModLoadingContext context;
     public static ChatScraperService SCRAPER;
@@ -22,6 +22,8 @@ public final class ExampleMod {
 
         // IMPORTANT: this event is on the DEFAULT bus, not MOD bus.
         AddGuiOverlayLayersEvent.BUS.addListener(ClientGuiLayers::addLayers);
+        // Chat is moved into the HUD on the tick, not while rendering
+        TickEvent.ClientTickEvent.Post.BUS.addListener(event -> ChatHudLayer.tick());
 
         // Register client config
         context.registerConfig(ModConfig.Type.CLIENT, Config.SPEC);
@@ -39,7 +41,18 @@ public final class ExampleMod {
 
         // Start scraper service
         SCRAPER = new ChatScraperService();
-        SCRAPER.start(Config.getChatUrl());
+        SCRAPER.start(Config.getChatUrls());
+
+        // The scraper thread is a daemon: without this, quitting the game loses the session
+        // cache and leaves the current history segment unsealed
+        ChatScraperService scraper = SCRAPER;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            scraper.shutdown();
+            try {
+                if (!scraper.awaitTermination(2_000)) LOGGER.warn("YTCHAT scraper did not finish saving in time");
+            } catch (InterruptedException ignored) {
+            }
+        }, "ytchat-shutdown"));
 
         LOGGER.info("YTCHAT client setup complete");
     }
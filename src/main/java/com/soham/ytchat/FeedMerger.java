@@ -0,0 +1,90 @@
+package com.soham.ytchat;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Merges per-stream batches into one feed ordered by message timestamp.
+ *
+ * A message is released once every healthy stream has polled past its timestamp
+ * (so nothing older can still arrive), or once it has been held for mergeMaxDelayMs
+ * of local time. The hold is measured locally so a skewed system clock can delay the
+ * feed by at most that much. Status lines (timestamp 0) skip the queue.
+ * Scraper thread only.
+ */
+final class FeedMerger {
+
+    private static final class Pending {
+        final Chat chat;
+        final long arrivedMs;
+        boolean released;
+
+        Pending(Chat chat, long arrivedMs) {
+            this.chat = chat;
+            this.arrivedMs = arrivedMs;
+        }
+    }
+
+    private final PriorityQueue<Pending> byTime =
+            new PriorityQueue<>(Comparator.comparingLong((Pending p) -> p.chat.timestampMs()));
+    private final ArrayDeque<Pending> byArrival = new ArrayDeque<>();
+    private final int maxPending;
+
+    FeedMerger(int maxPending) {
+        this.maxPending = maxPending;
+    }
+
+    void add(Chat c, long nowMs, Consumer<Chat> out) {
+        if (c.timestampMs() <= 0) {
+            out.accept(c);
+            return;
+        }
+        Pending p = new Pending(c, nowMs);
+        byTime.add(p);
+        byArrival.addLast(p);
+        // Don't let a stalled stream turn this into an unbounded buffer
+        while (byTime.size() > maxPending) release(byTime.poll(), out);
+    }
+
+    /**
+     * @param watermarkMs oldest "polled up to" time across healthy streams;
+     *                    Long.MAX_VALUE releases everything (single stream)
+     */
+    void flush(long watermarkMs, long nowMs, long maxDelayMs, Consumer<Chat> out) {
+        long cutoff = watermarkMs;
+
+        // Anything held too long forces out everything up to its timestamp
+        Pending oldest;
+        while ((oldest = byArrival.peekFirst()) != null) {
+            if (oldest.released) {
+                byArrival.pollFirst();
+            } else if (nowMs - oldest.arrivedMs >= maxDelayMs) {
+                cutoff = Math.max(cutoff, oldest.chat.timestampMs());
+                byArrival.pollFirst();
+            } else {
+                break;
+            }
+        }
+
+        Pending p;
+        while ((p = byTime.peek()) != null && p.chat.timestampMs() <= cutoff) {
+            release(byTime.poll(), out);
+        }
+    }
+
+    private static void release(Pending p, Consumer<Chat> out) {
+        p.released = true;
+        out.accept(p.chat);
+    }
+
+    void clear() {
+        byTime.clear();
+        byArrival.clear();
+    }
+
+    int size() {
+        return byTime.size();
+    }
+}
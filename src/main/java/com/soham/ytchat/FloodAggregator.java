@@ -0,0 +1,183 @@
+package com.soham.ytchat;
+
+import java.util.Arrays;
+
+/**
+ * Flood handling between the ingest ring and the HUD. Messages that normalize to the
+ * same text within a sliding window join one group, which the HUD shows as a single
+ * entry with a count ("W ×87"). While the incoming rate is above a threshold, new
+ * groups are sampled so only every Nth one gets an entry.
+ *
+ * Each offer costs one pass over at most {@link #KEY_CHARS} chars and one table probe.
+ * The table is direct-mapped, so two texts sharing a slot simply replace each other's
+ * group; they are told apart by their normalized text, never merged. Super
+ * Chats, memberships and status lines are never merged or sampled. Client tick only.
+ */
+final class FloodAggregator {
+
+    static final int SHOW = 0;
+    static final int MERGED = 1;
+    static final int SAMPLED_OUT = 2;
+
+    // Only the start of a message decides what it is a copy of
+    private static final int KEY_CHARS = 80;
+    private static final int TABLE_SIZE = 256;
+    private static final long RATE_WINDOW_MS = 1_000;
+
+    /** Messages that count as one. {@code entrySeq} is the HUD entry showing them. */
+    static final class Group {
+        String text;   // normalized, see normalize
+        long lastMs;
+        int count;
+        Author firstAuthor;
+        boolean mixedAuthors;
+        long entrySeq = -1;
+    }
+
+    private final Group[] table = new Group[TABLE_SIZE];
+
+    private long windowMs = 10_000;
+    private int rateThreshold = 15;
+
+    // Messages per second, counted over whole one-second windows
+    private long rateWindowStartMs;
+    private int rateWindowCount;
+    private int rate;
+
+    private boolean flooding;
+    private int sampleEvery = 1;
+    private int sampleCounter;
+
+    private Group last;
+
+    /** @param windowMs how long after its latest copy a message can still be merged into
+     *  @param rateThreshold messages per second above which new groups are sampled */
+    void configure(long windowMs, int rateThreshold) {
+        this.windowMs = windowMs;
+        this.rateThreshold = Math.max(1, rateThreshold);
+    }
+
+    /**
+     * @return SHOW (start a new entry for {@link #group()}), MERGED (bump that group's
+     *         entry) or SAMPLED_OUT (drop the message)
+     */
+    int offer(Chat c, long nowMs) {
+        countRate(nowMs);
+        last = null;
+        if (c.kind() != Chat.Kind.TEXT) return SHOW;
+
+        String text = normalize(c.chat());
+        int slot = slot(text);
+        Group g = table[slot];
+        if (g != null && g.text.equals(text) && nowMs - g.lastMs <= windowMs && g.entrySeq >= 0) {
+            g.count++;
+            g.lastMs = nowMs;
+            if (c.author() != g.firstAuthor) g.mixedAuthors = true;
+            last = g;
+            return MERGED;
+        }
+
+        if (flooding && (sampleCounter++ % sampleEvery) != 0) return SAMPLED_OUT;
+
+        // A new object, not a reused one: the HUD entry of the group it replaces still points at it
+        g = table[slot] = new Group();
+        g.text = text;
+        g.lastMs = nowMs;
+        g.count = 1;
+        g.firstAuthor = c.author();
+        last = g;
+        return SHOW;
+    }
+
+    /** The group the last SHOW or MERGED message went to; null for messages that are never grouped. */
+    Group group() {
+        return last;
+    }
+
+    /** True while new groups are being sampled. */
+    boolean flooding() {
+        return flooding;
+    }
+
+    /** While flooding, one new group in this many gets an entry. */
+    int sampleEvery() {
+        return sampleEvery;
+    }
+
+    /** Forget every group and the measured rate, as if no message had been seen. */
+    void clear() {
+        Arrays.fill(table, null);
+        last = null;
+        rateWindowStartMs = 0;
+        rateWindowCount = 0;
+        rate = 0;
+        flooding = false;
+        sampleEvery = 1;
+        sampleCounter = 0;
+    }
+
+    private void countRate(long nowMs) {
+        if (nowMs - rateWindowStartMs >= RATE_WINDOW_MS) {
+            // A gap of more than one window means nothing arrived in between
+            rate = (nowMs - rateWindowStartMs < 2 * RATE_WINDOW_MS) ? rateWindowCount : 0;
+            rateWindowStartMs = nowMs;
+            rateWindowCount = 0;
+
+            // Hysteresis so the mode does not flap around the threshold
+            if (!flooding && rate > rateThreshold) flooding = true;
+            else if (flooding && rate < rateThreshold * 3 / 4) flooding = false;
+            sampleEvery = flooding ? (rate + rateThreshold - 1) / rateThreshold : 1;
+        }
+        rateWindowCount++;
+    }
+
+    /**
+     * The text with case, punctuation and repetition taken out, so "W", "w w W" and
+     * "WWW!!" all become "w". Letters and digits form words, and a run of one char counts
+     * once. A word repeating the one before it is skipped.
+     */
+    static String normalize(String text) {
+        int n = Math.min(text.length(), KEY_CHARS);
+        StringBuilder sb = new StringBuilder(n);
+        int prevStart = -1;     // last word kept in sb
+        int prevLen = 0;
+        int start = -1;         // current word in sb, -1 between words
+        int prevCh = -1;
+        for (int i = 0; i <= n; i++) {
+            char ch = (i < n) ? text.charAt(i) : ' ';
+            if (i < n && Character.isLetterOrDigit(ch)) {
+                int lc = Character.toLowerCase(ch);
+                if (start < 0) {
+                    if (sb.length() > 0) sb.append(' ');
+                    start = sb.length();
+                    prevCh = -1;
+                }
+                if (lc != prevCh) sb.append((char) lc);
+                prevCh = lc;
+            } else if (start >= 0) {
+                int len = sb.length() - start;
+                if (len == prevLen && regionEquals(sb, prevStart, start, len)) {
+                    sb.setLength(Math.max(0, start - 1));
+                } else {
+                    prevStart = start;
+                    prevLen = len;
+                }
+                start = -1;
+            }
+        }
+        // Nothing alphanumeric ("???", "<3"): the exact text, which never looks like a normalized one
+        return (sb.length() > 0) ? sb.toString() : text;
+    }
+
+    static int slot(String normalized) {
+        int h = normalized.hashCode();
+        return (h ^ (h >>> 16)) & (TABLE_SIZE - 1);
+    }
+
+    private static boolean regionEquals(StringBuilder sb, int a, int b, int len) {
+        for (int k = 0; k < len; k++) {
+            if (sb.charAt(a + k) != sb.charAt(b + k)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,50 @@
+package com.soham.ytchat;
+
+import net.minecraft.client.gui.Font;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * {@link TextMetrics} backed by the client's font. Advances are measured once per code
+ * point and cached; call {@link #clear} when the font may have changed (resource reload,
+ * GUI scale). Client thread only.
+ */
+final class FontTextMetrics implements TextMetrics {
+
+    private final Font font;
+
+    // Basic Multilingual Plane, filled lazily; -1 = not measured yet
+    private final int[] bmp = new int[0x10000];
+    // Emoji and the rest of the supplementary planes
+    private final HashMap<Integer, Integer> supplementary = new HashMap<>();
+
+    FontTextMetrics(Font font) {
+        this.font = font;
+        Arrays.fill(bmp, -1);
+    }
+
+    Font font() {
+        return font;
+    }
+
+    void clear() {
+        Arrays.fill(bmp, -1);
+        supplementary.clear();
+    }
+
+    @Override
+    public int lineHeight() {
+        return font.lineHeight;
+    }
+
+    @Override
+    public int advance(int codePoint) {
+        if (codePoint < 0x10000) {
+            int w = bmp[codePoint];
+            if (w < 0) w = bmp[codePoint] = font.width(String.valueOf((char) codePoint));
+            return w;
+        }
+        return supplementary.computeIfAbsent(codePoint, cp -> font.width(new String(Character.toChars(cp))));
+    }
+}
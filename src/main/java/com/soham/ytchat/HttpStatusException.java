@@ -0,0 +1,23 @@
+package com.soham.ytchat;
+
+import java.io.IOException;
+
+/** A request that got a response, but not a 200. */
+final class HttpStatusException extends IOException {
+
+    private final int status;
+
+    HttpStatusException(String what, int status) {
+        super(what + " returned HTTP " + status);
+        this.status = status;
+    }
+
+    int status() {
+        return status;
+    }
+
+    /** 429 and 5xx are the server's problem and worth retrying as they are; other 4xx mean our request is wrong. */
+    boolean retryable() {
+        return status == 429 || status >= 500;
+    }
+}
@@ -0,0 +1,354 @@
+package com.soham.ytchat;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PushbackInputStream;
+import java.net.CookieManager;
+import java.net.CookiePolicy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The one HttpClient every YouTubeLiveChatClient shares. It prefers HTTP/2, so all polls
+ * for all streams reuse one connection, and it asks for gzip/deflate and decodes the
+ * body while it streams. Wire vs. decoded byte counts and request times are kept in
+ * {@link #stats()}.
+ *
+ * Requests go out with sendAsync. Each one has a deadline covering headers and body,
+ * and a {@link CancelToken} that aborts it at any point. The caller's virtual thread
+ * only waits.
+ */
+final class HttpTransport {
+
+    private static final CookieManager COOKIES = new CookieManager(null, CookiePolicy.ACCEPT_ALL);
+
+    // Only does the client's async plumbing; callers block on their own (virtual) threads
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "ytchat-http");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final HttpClient HTTP = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .cookieHandler(COOKIES)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(EXECUTOR)
+            .build();
+
+    // Fires request deadlines; a request that finishes first removes its timer
+    private static final ScheduledThreadPoolExecutor DEADLINES = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "ytchat-http-deadline");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        DEADLINES.setRemoveOnCancelPolicy(true);
+    }
+
+    private static final Stats STATS = new Stats();
+
+    /** Status, final URI (after redirects) and the decoded body. Close the body when done. */
+    record Response(int statusCode, URI uri, InputStream body) {}
+
+    private HttpTransport() {}
+
+    /**
+     * Send and wait for the response headers. The exchange, body included, must finish
+     * within {@code timeoutMs}. Past the deadline the wait or the next body read throws
+     * HttpTimeoutException. If {@code cancel} fires first, it throws InterruptedIOException.
+     */
+    static Response send(HttpRequest.Builder req, CancelToken cancel, long timeoutMs)
+            throws IOException, InterruptedException {
+        cancel.throwIfCancelled();
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<InputStream>> pending = HTTP.sendAsync(
+                req.header("Accept-Encoding", "gzip, deflate").build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        Exchange ex = new Exchange(pending, cancel, timeoutMs);
+
+        HttpResponse<InputStream> resp;
+        try {
+            resp = pending.get();
+        } catch (CancellationException e) {
+            ex.finish();
+            throw ex.failure();
+        } catch (ExecutionException e) {
+            ex.finish();
+            // Depending on timing the client reports our own cancel as a failed exchange
+            if (ex.aborted()) throw ex.failure();
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            ex.finish();
+            pending.cancel(true);
+            throw e;
+        }
+        // Time to response headers; reading the body is counted as parse time
+        Metrics.HTTP_REQUEST_US.stop(start);
+
+        String encoding = resp.headers().firstValue("Content-Encoding").orElse("").trim().toLowerCase(Locale.ROOT);
+        Metered wire = new Metered(resp.body(), start, ex);
+        if (!ex.attach(wire)) {
+            // Aborted between the headers arriving and here
+            wire.close();
+            throw ex.failure();
+        }
+        // Decoding starts with the first read, so an error status is never hidden by a broken body
+        switch (encoding) {
+            case "gzip", "x-gzip", "deflate" -> wire.decoded = new Decoded(wire, encoding);
+            default -> {}
+        }
+
+        return new Response(resp.statusCode(), resp.uri(), wire.decoded != null ? wire.decoded : wire);
+    }
+
+    static Stats stats() {
+        return STATS;
+    }
+
+    /** Totals across every request since startup. */
+    static final class Stats {
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong wireBytes = new AtomicLong();
+        private final AtomicLong decodedBytes = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private volatile long lastRequestMs;
+
+        void record(long wire, long decoded, long nanos) {
+            requests.incrementAndGet();
+            wireBytes.addAndGet(wire);
+            decodedBytes.addAndGet(decoded);
+            totalNanos.addAndGet(nanos);
+            lastRequestMs = nanos / 1_000_000;
+        }
+
+        long requestCount() { return requests.get(); }
+        long wireBytes() { return wireBytes.get(); }
+        /** What the same bodies would have cost uncompressed. */
+        long decodedBytes() { return decodedBytes.get(); }
+        long lastRequestMs() { return lastRequestMs; }
+
+        double avgRequestMs() {
+            long n = requests.get();
+            return (n == 0) ? 0 : totalNanos.get() / 1e6 / n;
+        }
+
+        @Override
+        public String toString() {
+            long wire = wireBytes(), decoded = decodedBytes();
+            double saved = (decoded == 0) ? 0 : 100.0 * (decoded - wire) / decoded;
+            return String.format(Locale.ROOT, "requests=%d wire=%dKB decoded=%dKB saved=%.0f%% avg=%.0fms last=%dms",
+                    requestCount(), wire / 1024, decoded / 1024, saved, avgRequestMs(), lastRequestMs);
+        }
+    }
+
+    /** One request in flight: its deadline timer, its cancel hook, and once the headers are in, its body. */
+    private static final class Exchange implements Runnable {
+        private final CompletableFuture<?> pending;
+        private final CancelToken cancel;
+        private final long timeoutMs;
+        private final ScheduledFuture<?> timer;
+        private volatile boolean timedOut;
+        private boolean aborted;
+        private Metered body;
+
+        Exchange(CompletableFuture<?> pending, CancelToken cancel, long timeoutMs) {
+            this.pending = pending;
+            this.cancel = cancel;
+            this.timeoutMs = timeoutMs;
+            cancel.onCancel(this);
+            this.timer = DEADLINES.schedule(() -> {
+                timedOut = true;
+                abort();
+            }, timeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        /** Cancel hook. */
+        @Override
+        public void run() {
+            abort();
+        }
+
+        void abort() {
+            Metered b;
+            synchronized (this) {
+                if (aborted) return;
+                aborted = true;
+                b = body;
+            }
+            pending.cancel(true);
+            // Closing the response stream wakes a reader blocked on it
+            if (b != null) b.closeRaw();
+        }
+
+        /** @return false if the exchange was already aborted */
+        synchronized boolean attach(Metered m) {
+            body = m;
+            return !aborted;
+        }
+
+        synchronized boolean aborted() {
+            return aborted;
+        }
+
+        void finish() {
+            timer.cancel(false);
+            cancel.removeHook(this);
+        }
+
+        IOException failure() {
+            return timedOut
+                    ? new HttpTimeoutException("No complete response within " + timeoutMs + " ms")
+                    : new InterruptedIOException("Chat session was restarted");
+        }
+    }
+
+    /**
+     * Counts compressed bytes; reports the request when the body is closed (or fully read).
+     * Reads after an abort throw the abort reason instead of looking like a short body.
+     */
+    private static final class Metered extends FilterInputStream {
+        private final long startNanos;
+        private final Exchange exchange;
+        private long count;
+        private boolean recorded;
+        Decoded decoded;
+
+        Metered(InputStream in, long startNanos, Exchange exchange) {
+            super(in);
+            this.startNanos = startNanos;
+            this.exchange = exchange;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b;
+            try {
+                b = super.read();
+            } catch (IOException e) {
+                throw aborted(e);
+            }
+            if (b < 0 && exchange.aborted()) throw exchange.failure();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            int n;
+            try {
+                n = super.read(buf, off, len);
+            } catch (IOException e) {
+                throw aborted(e);
+            }
+            if (n < 0 && exchange.aborted()) throw exchange.failure();
+            if (n > 0) count += n;
+            return n;
+        }
+
+        /** An abort closes the stream under the reader; report why rather than "stream closed". */
+        private IOException aborted(IOException e) {
+            return exchange.aborted() ? exchange.failure() : e;
+        }
+
+        void closeRaw() {
+            try { in.close(); }
+            catch (IOException ignored) {}
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                exchange.finish();
+                if (!recorded) {
+                    recorded = true;
+                    STATS.record(count, (decoded != null) ? decoded.count : count, System.nanoTime() - startNanos);
+                }
+            }
+        }
+    }
+
+    /**
+     * Decompresses the body and counts the decoded bytes. The decoder is only built on the
+     * first read, since building it already reads the stream header. Closing closes the wire
+     * stream either way.
+     */
+    private static final class Decoded extends InputStream {
+        private final Metered wire;
+        private final String encoding;
+        private InputStream in;
+        private Inflater inflater;   // Ours to end; GZIPInputStream ends its own
+        long count;
+
+        Decoded(Metered wire, String encoding) {
+            this.wire = wire;
+            this.encoding = encoding;
+        }
+
+        private InputStream in() throws IOException {
+            if (in == null) in = encoding.equals("deflate") ? inflate() : new GZIPInputStream(wire, 8192);
+            return in;
+        }
+
+        /** "deflate" is supposed to be zlib-wrapped, but some servers send raw deflate; sniff the header. */
+        private InputStream inflate() throws IOException {
+            PushbackInputStream pb = new PushbackInputStream(wire, 2);
+            byte[] head = pb.readNBytes(2);
+            pb.unread(head);
+            boolean zlib = head.length == 2 && (head[0] & 0x0F) == 8 && (((head[0] & 0xFF) << 8) | (head[1] & 0xFF)) % 31 == 0;
+            inflater = new Inflater(!zlib);
+            return new InflaterInputStream(pb, inflater, 8192);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in().read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            int n = in().read(buf, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (in != null) in.close();
+            } finally {
+                try {
+                    wire.close();
+                } finally {
+                    if (inflater != null) inflater.end();
+                }
+            }
+        }
+    }
+}
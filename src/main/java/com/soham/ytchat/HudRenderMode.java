@@ -0,0 +1,12 @@
+package com.soham.ytchat;
+
+/** How ChatHudLayer draws the panel. */
+public enum HudRenderMode {
+    /** Recompute panel geometry and issue every draw each frame. */
+    IMMEDIATE,
+    /**
+     * Keep the positioned draws from the last layout and reissue them each frame; only the
+     * geometry pass is skipped until the panel or window width changes.
+     */
+    CACHED_LAYOUT
+}
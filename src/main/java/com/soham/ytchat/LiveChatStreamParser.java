@@ -0,0 +1,266 @@
+package com.soham.ytchat;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Pulls chat messages and the next continuation out of a get_live_chat response
+ * without building a JSON tree. Only
+ * continuationContents.liveChatContinuation.{actions,continuations} is read;
+ * every other subtree is skipped token by token.
+ */
+final class LiveChatStreamParser {
+
+    /** Receives each message in document order. {@code channelId} may be null. */
+    interface MessageSink {
+        void accept(String id, Chat.Kind kind, String author, String channelId, String text, long timestampMs);
+    }
+
+    private LiveChatStreamParser() {}
+
+    static YouTubeLiveChatClient.NextContinuation parse(InputStream body, MessageSink sink) throws IOException {
+        try (JsonReader r = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            return parse(r, sink);
+        }
+    }
+
+    static YouTubeLiveChatClient.NextContinuation parse(JsonReader r, MessageSink sink) throws IOException {
+        YouTubeLiveChatClient.NextContinuation next = null;
+
+        r.beginObject();
+        while (r.hasNext()) {
+            if (r.nextName().equals("continuationContents") && r.peek() == JsonToken.BEGIN_OBJECT) {
+                r.beginObject();
+                while (r.hasNext()) {
+                    if (r.nextName().equals("liveChatContinuation") && r.peek() == JsonToken.BEGIN_OBJECT) {
+                        next = readLiveChatContinuation(r, sink);
+                    } else {
+                        r.skipValue();
+                    }
+                }
+                r.endObject();
+            } else {
+                r.skipValue();
+            }
+        }
+        r.endObject();
+
+        return next;
+    }
+
+    private static YouTubeLiveChatClient.NextContinuation readLiveChatContinuation(JsonReader r, MessageSink sink)
+            throws IOException {
+        YouTubeLiveChatClient.NextContinuation next = null;
+
+        r.beginObject();
+        while (r.hasNext()) {
+            String name = r.nextName();
+            if (name.equals("actions") && r.peek() == JsonToken.BEGIN_ARRAY) {
+                r.beginArray();
+                while (r.hasNext()) readAction(r, sink);
+                r.endArray();
+            } else if (name.equals("continuations") && r.peek() == JsonToken.BEGIN_ARRAY) {
+                r.beginArray();
+                while (r.hasNext()) {
+                    YouTubeLiveChatClient.NextContinuation c = readContinuation(r);
+                    if (next == null) next = c;
+                }
+                r.endArray();
+            } else {
+                r.skipValue();
+            }
+        }
+        r.endObject();
+
+        return next;
+    }
+
+    // actions[].addChatItemAction.item.{liveChatTextMessageRenderer, liveChatPaidMessageRenderer,
+    // liveChatMembershipItemRenderer}
+    private static void readAction(JsonReader r, MessageSink sink) throws IOException {
+        if (!enterObject(r)) return;
+        while (r.hasNext()) {
+            if (r.nextName().equals("addChatItemAction") && enterObject(r)) {
+                while (r.hasNext()) {
+                    if (r.nextName().equals("item") && enterObject(r)) {
+                        while (r.hasNext()) {
+                            Chat.Kind kind = switch (r.nextName()) {
+                                case "liveChatTextMessageRenderer" -> Chat.Kind.TEXT;
+                                case "liveChatPaidMessageRenderer" -> Chat.Kind.PAID;
+                                case "liveChatMembershipItemRenderer" -> Chat.Kind.MEMBERSHIP;
+                                default -> null;
+                            };
+                            if (kind != null && enterObject(r)) {
+                                readMessage(r, kind, sink);
+                            } else if (kind == null) {
+                                r.skipValue();
+                            }
+                        }
+                        r.endObject();
+                    } else {
+                        r.skipValue();
+                    }
+                }
+                r.endObject();
+            } else {
+                r.skipValue();
+            }
+        }
+        r.endObject();
+    }
+
+    /** Called just inside the renderer object; consumes up to and including its end. */
+    private static void readMessage(JsonReader r, Chat.Kind kind, MessageSink sink) throws IOException {
+        String id = null;
+        String author = null;
+        String channelId = null;
+        String text = null;
+        String amount = null;
+        String header = null;
+        long timestampMs = 0;
+
+        while (r.hasNext()) {
+            switch (r.nextName()) {
+                case "id" -> id = readPrimitive(r);
+                case "authorName" -> author = readText(r);
+                case "authorExternalChannelId" -> channelId = readPrimitive(r);
+                case "message" -> text = readText(r);
+                case "purchaseAmountText" -> amount = readText(r);
+                case "headerSubtext" -> header = readText(r);
+                case "timestampUsec" -> timestampMs = readTimestampMs(r);
+                default -> r.skipValue();
+            }
+        }
+        r.endObject();
+
+        if (author == null) author = "unknown";
+        // A Super Chat may come without a message, a membership usually has only its header
+        if (kind == Chat.Kind.PAID && amount != null) {
+            text = (text == null || text.isBlank()) ? amount : amount + " " + text;
+        } else if (kind == Chat.Kind.MEMBERSHIP && (text == null || text.isBlank())) {
+            text = header;
+        }
+        if (text == null || text.isBlank()) return;
+
+        sink.accept(id, kind, author, channelId, text, timestampMs);
+    }
+
+    // {simpleText} or {runs[].text}; emoji runs carry no "text" and are dropped like in concatRunsText
+    private static String readText(JsonReader r) throws IOException {
+        if (!enterObject(r)) return null;
+        String simple = null;
+        StringBuilder sb = null;
+        while (r.hasNext()) {
+            String name = r.nextName();
+            if (name.equals("simpleText")) {
+                simple = readPrimitive(r);
+            } else if (name.equals("runs") && r.peek() == JsonToken.BEGIN_ARRAY) {
+                sb = new StringBuilder();
+                r.beginArray();
+                while (r.hasNext()) {
+                    if (!enterObject(r)) continue;
+                    while (r.hasNext()) {
+                        if (r.nextName().equals("text")) {
+                            String t = readPrimitive(r);
+                            if (t != null) sb.append(t);
+                        } else {
+                            r.skipValue();
+                        }
+                    }
+                    r.endObject();
+                }
+                r.endArray();
+            } else {
+                r.skipValue();
+            }
+        }
+        r.endObject();
+        if (simple != null) return simple;
+        return (sb == null) ? null : sb.toString();
+    }
+
+    private static long readTimestampMs(JsonReader r) throws IOException {
+        String usec = readPrimitive(r);
+        if (usec == null) return 0;
+        try { return Long.parseLong(usec) / 1000; }
+        catch (NumberFormatException e) { return 0; }
+    }
+
+    /** One continuations[] entry; same priority as the tree walk: timed, invalidation, reload. */
+    private static YouTubeLiveChatClient.NextContinuation readContinuation(JsonReader r) throws IOException {
+        if (!enterObject(r)) return null;
+
+        YouTubeLiveChatClient.NextContinuation timed = null, inval = null, reload = null;
+        while (r.hasNext()) {
+            switch (r.nextName()) {
+                case "timedContinuationData" -> timed = readContinuationData(r);
+                case "invalidationContinuationData" -> inval = readContinuationData(r);
+                case "reloadContinuationData" -> {
+                    YouTubeLiveChatClient.NextContinuation c = readContinuationData(r);
+                    if (c != null) reload = new YouTubeLiveChatClient.NextContinuation(c.token(), -1);
+                }
+                default -> r.skipValue();
+            }
+        }
+        r.endObject();
+
+        if (timed != null) return timed;
+        if (inval != null) return inval;
+        return reload;
+    }
+
+    private static YouTubeLiveChatClient.NextContinuation readContinuationData(JsonReader r) throws IOException {
+        if (!enterObject(r)) return null;
+
+        String token = null;
+        boolean hasToken = false;
+        long timeoutMs = -1;
+        while (r.hasNext()) {
+            switch (r.nextName()) {
+                case "continuation" -> {
+                    hasToken = true;
+                    token = readPrimitive(r);
+                }
+                case "timeoutMs" -> {
+                    String t = readPrimitive(r);
+                    if (t != null) {
+                        try { timeoutMs = Long.parseLong(t); }
+                        catch (NumberFormatException ignored) {}
+                    }
+                }
+                default -> r.skipValue();
+            }
+        }
+        r.endObject();
+
+        return hasToken ? new YouTubeLiveChatClient.NextContinuation(token, timeoutMs) : null;
+    }
+
+    /** Begins the object if the next value is one; otherwise skips it and returns false. */
+    private static boolean enterObject(JsonReader r) throws IOException {
+        if (r.peek() == JsonToken.BEGIN_OBJECT) {
+            r.beginObject();
+            return true;
+        }
+        r.skipValue();
+        return false;
+    }
+
+    /** Strings, numbers and booleans as text (like JsonElement.getAsString); anything else is skipped. */
+    private static String readPrimitive(JsonReader r) throws IOException {
+        switch (r.peek()) {
+            case STRING, NUMBER:
+                return r.nextString();
+            case BOOLEAN:
+                return Boolean.toString(r.nextBoolean());
+            default:
+                r.skipValue();
+                return null;
+        }
+    }
+}
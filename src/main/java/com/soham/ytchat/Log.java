@@ -0,0 +1,41 @@
+package com.soham.ytchat;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The mod's one logger. Failures that can repeat on every poll go through
+ * {@link #warnLimited}, so a stream that keeps failing logs about once a minute
+ * instead of on every retry.
+ */
+final class Log {
+
+    static final Logger LOGGER = LoggerFactory.getLogger(ExampleMod.MODID);
+
+    private static final long LIMIT_MS = 60_000;
+
+    // key -> {last logged at ms, suppressed since}
+    private static final ConcurrentHashMap<String, long[]> LIMITS = new ConcurrentHashMap<>();
+
+    private Log() {}
+
+    /** Log at warn, at most once per minute per {@code key}; the next line says how many were skipped. */
+    static void warnLimited(String key, String msg, Throwable t) {
+        long now = System.currentTimeMillis();
+        long[] st = LIMITS.computeIfAbsent(key, k -> new long[]{now - LIMIT_MS, 0});
+        long suppressed;
+        synchronized (st) {
+            if (now - st[0] < LIMIT_MS) {
+                st[1]++;
+                return;
+            }
+            st[0] = now;
+            suppressed = st[1];
+            st[1] = 0;
+        }
+        if (suppressed > 0) LOGGER.warn("{} ({} more like it in the last minute)", msg, suppressed, t);
+        else LOGGER.warn(msg, t);
+    }
+}
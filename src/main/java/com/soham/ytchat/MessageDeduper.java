@@ -0,0 +1,209 @@
+package com.soham.ytchat;
+
+import java.util.Arrays;
+
+/**
+ * Drops chat items whose renderer {@code id} was already seen, e.g. when a continuation
+ * reload replays recent messages. IDs are hashed to 64 bits and kept in a fixed-size
+ * open-addressing set that evicts the oldest ID once the window is full, so memory is
+ * fixed up front however long the stream runs.
+ *
+ * Optionally, IDs that fell out of the window are still caught by a pair of rotating
+ * Bloom filters (also fixed size). A Bloom false positive drops a real message, so it
+ * is off by default.
+ *
+ * Not thread-safe; each client owns one.
+ */
+final class MessageDeduper {
+
+    private final long[] table;      // 0 = empty slot
+    private final int tableMask;
+    private final long[] order;      // ring of hashes in insertion order, for eviction
+    private int orderPos;
+    private int size;
+
+    private final Bloom bloom;
+    private long duplicates;
+
+    /**
+     * @param window        how many recent IDs to remember exactly
+     * @param bloomCapacity IDs per Bloom generation, or 0 to disable the Bloom stage
+     */
+    MessageDeduper(int window, int bloomCapacity) {
+        window = Math.max(1, window);
+        int cap = Integer.highestOneBit(window * 2 - 1) << 1;
+        this.table = new long[Math.max(2, cap)];
+        this.tableMask = table.length - 1;
+        this.order = new long[window];
+        this.bloom = (bloomCapacity > 0) ? new Bloom(bloomCapacity) : null;
+    }
+
+    /** @return true if {@code id} was seen before; otherwise remembers it. Null IDs are never duplicates. */
+    boolean isDuplicate(String id) {
+        if (id == null || id.isEmpty()) return false;
+        long h = hash(id);
+
+        if (contains(h) || (bloom != null && bloom.mightContain(h))) {
+            duplicates++;
+            return true;
+        }
+
+        if (size == order.length) {
+            remove(order[orderPos]);
+        } else {
+            size++;
+        }
+        order[orderPos] = h;
+        orderPos = (orderPos + 1 == order.length) ? 0 : orderPos + 1;
+        insert(h);
+
+        if (bloom != null) bloom.add(h);
+        return false;
+    }
+
+    long duplicateCount() {
+        return duplicates;
+    }
+
+    void clear() {
+        Arrays.fill(table, 0L);
+        orderPos = 0;
+        size = 0;
+        if (bloom != null) bloom.clear();
+    }
+
+    // --------------------------
+    // Open addressing, linear probing
+    // --------------------------
+
+    private boolean contains(long h) {
+        int i = slot(h);
+        long v;
+        while ((v = table[i]) != 0) {
+            if (v == h) return true;
+            i = (i + 1) & tableMask;
+        }
+        return false;
+    }
+
+    private void insert(long h) {
+        int i = slot(h);
+        while (table[i] != 0) {
+            if (table[i] == h) return;
+            i = (i + 1) & tableMask;
+        }
+        table[i] = h;
+    }
+
+    /** Backward-shift deletion, so no tombstones build up. */
+    private void remove(long h) {
+        int i = slot(h);
+        while (table[i] != h) {
+            if (table[i] == 0) return;
+            i = (i + 1) & tableMask;
+        }
+
+        int hole = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & tableMask;
+            long v = table[j];
+            if (v == 0) break;
+            int home = slot(v);
+            // Move v into the hole if its home slot is not cyclically in (hole, j]
+            boolean between = (hole <= j) ? (hole < home && home <= j) : (hole < home || home <= j);
+            if (!between) {
+                table[hole] = v;
+                hole = j;
+            }
+        }
+        table[hole] = 0;
+    }
+
+    private int slot(long h) {
+        return (int) (h ^ (h >>> 32)) & tableMask;
+    }
+
+    /** FNV-1a over the chars, then a murmur3 finalizer. Never returns 0 (the empty marker). */
+    static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h = mix(h);
+        return (h == 0) ? 1 : h;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // --------------------------
+    // Rotating Bloom filter
+    // --------------------------
+
+    /**
+     * Two generations sized for ~1% false positives each. When the current one has taken
+     * {@code capacity} IDs it becomes the previous one and the old previous is cleared,
+     * so the false positive rate never creeps up however long the session runs.
+     */
+    private static final class Bloom {
+        private static final int K = 7;
+
+        private long[] current;
+        private long[] previous;
+        private final int bits;
+        private final int capacity;
+        private int count;
+
+        Bloom(int capacity) {
+            this.capacity = capacity;
+            // m = -n ln p / (ln 2)^2 with p = 0.01, rounded up to whole longs
+            long m = (long) Math.ceil(capacity * 9.585);
+            this.bits = (int) Math.min(Integer.MAX_VALUE - 63, (m + 63) & ~63L);
+            this.current = new long[bits / 64];
+            this.previous = new long[bits / 64];
+        }
+
+        boolean mightContain(long h) {
+            return test(current, h) || test(previous, h);
+        }
+
+        void add(long h) {
+            if (count == capacity) {
+                long[] t = previous;
+                Arrays.fill(t, 0L);
+                previous = current;
+                current = t;
+                count = 0;
+            }
+            long h2 = mix(h) | 1;
+            for (int i = 0; i < K; i++) {
+                int bit = (int) Long.remainderUnsigned(h + i * h2, bits);
+                current[bit >>> 6] |= 1L << bit;
+            }
+            count++;
+        }
+
+        private boolean test(long[] words, long h) {
+            long h2 = mix(h) | 1;
+            for (int i = 0; i < K; i++) {
+                int bit = (int) Long.remainderUnsigned(h + i * h2, bits);
+                if ((words[bit >>> 6] & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        void clear() {
+            Arrays.fill(current, 0L);
+            Arrays.fill(previous, 0L);
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.soham.ytchat;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for the ingest and render hot paths, shown in the
+ * HUD debug panel and under {@code com.soham.ytchat:type=Metrics} in JMX.
+ *
+ * Off by default. When off, every call site costs one read of a plain static boolean:
+ * {@link #start()} returns 0 without calling nanoTime, and recording a 0 start is a no-op.
+ */
+public final class Metrics {
+
+    // Plain, not volatile: a stale read for a moment after toggling is fine, a fence per call is not
+    static boolean enabled;
+
+    public static final Histogram HTTP_REQUEST_US = new Histogram("httpRequestUs");
+    public static final Histogram PARSE_US = new Histogram("parseUs");
+    public static final Histogram MESSAGES_PER_POLL = new Histogram("messagesPerPoll");
+    public static final Histogram QUEUE_DEPTH = new Histogram("queueDepth");
+    public static final Histogram DRAIN_PER_TICK = new Histogram("drainPerTick");
+    public static final Histogram HUD_TICK_US = new Histogram("hudTickUs");
+    public static final Histogram HUD_RENDER_US = new Histogram("hudRenderUs");
+
+    public static final Counter POLLS = new Counter("polls");
+    public static final Counter MESSAGES = new Counter("messages");
+    public static final Counter FRAMES = new Counter("frames");
+    public static final Counter FILTERED = new Counter("filtered");
+
+    static final Histogram[] HISTOGRAMS = {
+            HTTP_REQUEST_US, PARSE_US, MESSAGES_PER_POLL, QUEUE_DEPTH, DRAIN_PER_TICK, HUD_TICK_US, HUD_RENDER_US
+    };
+    static final Counter[] COUNTERS = {POLLS, MESSAGES, FRAMES, FILTERED};
+
+    private static boolean jmxRegistered;
+
+    private Metrics() {}
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static synchronized void setEnabled(boolean on) {
+        enabled = on;
+        if (on && !jmxRegistered) {
+            jmxRegistered = true;
+            try {
+                ManagementFactory.getPlatformMBeanServer()
+                        .registerMBean(new Jmx(), new ObjectName("com.soham.ytchat:type=Metrics"));
+            } catch (Exception e) {
+                Log.LOGGER.warn("Could not register the metrics MBean; JMX will not show them", e);
+            }
+        }
+    }
+
+    /** Start of a timed section, or 0 when metrics are off. */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public static void reset() {
+        for (Histogram h : HISTOGRAMS) h.reset();
+        for (Counter c : COUNTERS) c.reset();
+    }
+
+    // --------------------------
+    // Counter
+    // --------------------------
+
+    public static final class Counter {
+        final String name;
+        private final LongAdder n = new LongAdder();
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        public void add(long d) {
+            if (enabled) n.add(d);
+        }
+
+        public void inc() {
+            if (enabled) n.increment();
+        }
+
+        public long get() {
+            return n.sum();
+        }
+
+        void reset() {
+            n.reset();
+        }
+    }
+
+    // --------------------------
+    // Histogram
+    // --------------------------
+
+    /**
+     * Log-linear buckets like HdrHistogram with 5 bits of precision: values below 64 are
+     * exact, above that each power of two is split into 32 buckets (within about 3%).
+     * Fixed size, lock-free, and safe to record from any thread.
+     */
+    public static final class Histogram {
+        private static final int SUB_BITS = 5;
+        private static final int SUB = 1 << SUB_BITS;
+        private static final int LINEAR = 2 * SUB;                      // 0..63 exact
+        private static final int BUCKETS = LINEAR + (63 - SUB_BITS - 1) * SUB;
+
+        final String name;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder total = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        Histogram(String name) {
+            this.name = name;
+        }
+
+        /** Records the microseconds since {@code startNanos} (from {@link Metrics#start()}). */
+        public void stop(long startNanos) {
+            if (startNanos != 0) record((System.nanoTime() - startNanos) / 1_000);
+        }
+
+        public void record(long value) {
+            if (!enabled) return;
+            if (value < 0) value = 0;
+            counts.incrementAndGet(bucket(value));
+            total.increment();
+            sum.add(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        public Snapshot snapshot() {
+            long[] c = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) c[i] = counts.get(i);
+            return new Snapshot(c, sum.sum(), max.get());
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+            total.reset();
+            sum.reset();
+            max.set(0);
+        }
+
+        static int bucket(long v) {
+            if (v < LINEAR) return (int) v;
+            int exp = 63 - Long.numberOfLeadingZeros(v);               // >= 6
+            int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB - 1);
+            return LINEAR + (exp - SUB_BITS - 1) * SUB + sub;
+        }
+
+        /** Midpoint of the bucket's range. */
+        static long valueOf(int bucket) {
+            if (bucket < LINEAR) return bucket;
+            int i = bucket - LINEAR;
+            int exp = i / SUB + SUB_BITS + 1;
+            long lo = (1L << exp) + ((long) (i % SUB) << (exp - SUB_BITS));
+            return lo + (1L << (exp - SUB_BITS)) / 2;
+        }
+    }
+
+    /** Histogram contents at one instant; subtract two for an interval. */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] counts, long sum, long max) {
+            this.counts = counts;
+            long n = 0;
+            for (long c : counts) n += c;
+            this.count = n;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /** What was recorded between {@code earlier} and this snapshot. */
+        public Snapshot since(Snapshot earlier) {
+            if (earlier == null) return this;
+            long[] d = new long[counts.length];
+            long top = 0;
+            for (int i = 0; i < d.length; i++) {
+                d[i] = counts[i] - earlier.counts[i];
+                if (d[i] > 0) top = Histogram.valueOf(i);
+            }
+            return new Snapshot(d, sum - earlier.sum, Math.min(max, top));
+        }
+
+        public long count() { return count; }
+        public long max() { return max; }
+
+        public double mean() {
+            return (count == 0) ? 0 : (double) sum / count;
+        }
+
+        public long percentile(double p) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(p / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(Histogram.valueOf(i), max);
+            }
+            return max;
+        }
+    }
+
+    // --------------------------
+    // JMX
+    // --------------------------
+
+    /** Flat read-only attributes: "<histogram>.p50", ".p99", ".max", ".mean", ".count", and each counter. */
+    private static final class Jmx implements DynamicMBean {
+        private static final String[] STATS = {"count", "mean", "p50", "p90", "p99", "max"};
+
+        @Override
+        public Object getAttribute(String attribute) {
+            for (Counter c : COUNTERS) {
+                if (c.name.equals(attribute)) return c.get();
+            }
+            int dot = attribute.lastIndexOf('.');
+            if (dot > 0) {
+                String name = attribute.substring(0, dot);
+                for (Histogram h : HISTOGRAMS) {
+                    if (!h.name.equals(name)) continue;
+                    Snapshot s = h.snapshot();
+                    return switch (attribute.substring(dot + 1)) {
+                        case "count" -> (double) s.count();
+                        case "mean" -> s.mean();
+                        case "p50" -> (double) s.percentile(50);
+                        case "p90" -> (double) s.percentile(90);
+                        case "p99" -> (double) s.percentile(99);
+                        case "max" -> (double) s.max();
+                        default -> null;
+                    };
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList out = new AttributeList();
+            for (String a : attributes) out.add(new Attribute(a, getAttribute(a)));
+            return out;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            // What the JMX spec asks for on a read-only attribute
+            throw new AttributeNotFoundException("Read-only attribute: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            if ("reset".equals(actionName)) reset();
+            return null;
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attrs = new ArrayList<>();
+            for (Counter c : COUNTERS) {
+                attrs.add(new MBeanAttributeInfo(c.name, "long", c.name, true, false, false));
+            }
+            for (Histogram h : HISTOGRAMS) {
+                for (String s : STATS) {
+                    attrs.add(new MBeanAttributeInfo(h.name + "." + s, "double", h.name + " " + s, true, false, false));
+                }
+            }
+            MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Clear all metrics",
+                    new javax.management.MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+            return new MBeanInfo(Metrics.class.getName(), "YouTube chat overlay metrics",
+                    attrs.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[]{reset}, null);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.soham.ytchat;
+
+import net.minecraft.client.gui.Font;
+import net.minecraft.client.gui.GuiGraphics;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Debug panel in the top-left corner while {@code debugMetrics} is on. The text is
+ * rebuilt once a second from the change in each histogram, so it shows the last second
+ * rather than everything since startup, and drawing it allocates nothing per frame.
+ */
+final class MetricsOverlay {
+
+    private static final long REFRESH_MS = 1_000;
+    private static final int X = 4;
+    private static final int Y = 4;
+    private static final int BG = 0xAA000000;
+    private static final int TEXT = 0xFFB0FFB0;
+
+    private static final Metrics.Snapshot[] prev = new Metrics.Snapshot[Metrics.HISTOGRAMS.length];
+    private static String[] lines = new String[0];
+    private static int width;
+    private static long builtAtMs;
+
+    private MetricsOverlay() {}
+
+    static void render(GuiGraphics g, Font font) {
+        long now = System.currentTimeMillis();
+        if (now - builtAtMs >= REFRESH_MS) rebuild(font, now);
+
+        int lineH = font.lineHeight + 1;
+        g.fill(X - 2, Y - 2, X + width + 2, Y + lines.length * lineH + 1, BG);
+        int y = Y;
+        for (String line : lines) {
+            g.drawString(font, line, X, y, TEXT, false);
+            y += lineH;
+        }
+    }
+
+    private static void rebuild(Font font, long now) {
+        double secs = (builtAtMs == 0) ? 1 : (now - builtAtMs) / 1000.0;
+        builtAtMs = now;
+
+        ChatScraperService scraper = ExampleMod.SCRAPER;
+        List<StreamRecovery.Status> streams = (scraper == null) ? List.of() : scraper.streamStatus();
+
+        String[] out = new String[Metrics.HISTOGRAMS.length + 1 + streams.size()];
+        out[0] = String.format(Locale.ROOT, "polls %d  msgs %d  frames %d",
+                Metrics.POLLS.get(), Metrics.MESSAGES.get(), Metrics.FRAMES.get());
+        for (int i = 0; i < Metrics.HISTOGRAMS.length; i++) {
+            Metrics.Histogram h = Metrics.HISTOGRAMS[i];
+            Metrics.Snapshot s = h.snapshot();
+            Metrics.Snapshot d = s.since(prev[i]);
+            prev[i] = s;
+            out[i + 1] = String.format(Locale.ROOT, "%-15s %5.1f/s p50 %d p99 %d max %d",
+                    h.name, d.count() / secs, d.percentile(50), d.percentile(99), d.max());
+        }
+        for (int i = 0; i < streams.size(); i++) {
+            out[Metrics.HISTOGRAMS.length + 1 + i] = "stream " + streams.get(i);
+        }
+
+        int w = 0;
+        for (String s : out) w = Math.max(w, font.width(s));
+        lines = out;
+        width = w;
+    }
+}
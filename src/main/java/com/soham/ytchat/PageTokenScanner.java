@@ -0,0 +1,215 @@
+package com.soham.ytchat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Single-pass scanner that pulls the InnerTube API key, client version and live chat
+ * continuation out of popout/watch HTML as it streams in. Reading stops as soon as all
+ * three are known from their preferred sources, so the rest of the page is never downloaded.
+ *
+ * Only a small window of the page is held in memory: text before the earliest marker
+ * that still needs more input is dropped after every chunk.
+ */
+final class PageTokenScanner {
+
+    private static final String API_KEY = "INNERTUBE_API_KEY";
+    private static final String CONTEXT_CLIENT_VERSION = "INNERTUBE_CONTEXT_CLIENT_VERSION";
+    private static final String CLIENT_VERSION = "INNERTUBE_CLIENT_VERSION";
+    private static final String INITIAL_DATA = "ytInitialData";
+    private static final String LIVE_CHAT_RENDERER = "\"liveChatRenderer\"";
+    private static final String LIVE_CHAT_CONTINUATION = "\"liveChatContinuation\"";
+    private static final String CONTINUATION = "\"continuation\"";
+
+    private static final String[] MARKERS = {
+            API_KEY, CONTEXT_CLIENT_VERSION, CLIENT_VERSION,
+            INITIAL_DATA, LIVE_CHAT_RENDERER, LIVE_CHAT_CONTINUATION, CONTINUATION
+    };
+    private static final int LONGEST_MARKER = CONTEXT_CLIENT_VERSION.length();
+
+    // Anything longer is not a token we want; also bounds how much text we hold back
+    private static final int MAX_VALUE_LEN = 4096;
+    private static final int SNIPPET_LEN = 220;
+
+    // How trustworthy a continuation is, by the nearest anchor seen before it.
+    // Rank >= RANK_RENDERER is good enough to stop reading.
+    private static final int RANK_NONE = 0;
+    private static final int RANK_INITIAL_DATA = 1;
+    private static final int RANK_RENDERER = 2;
+    private static final int RANK_LIVE_CHAT = 3;
+
+    // Where the client version came from. ytcfg's context version is the one the old
+    // ytcfg lookup preferred, so only that one is good enough to stop reading.
+    private static final int VERSION_NONE = 0;
+    private static final int VERSION_PLAIN = 1;
+    private static final int VERSION_CONTEXT = 2;
+
+    private static final int INCOMPLETE = -1;
+    private static final int MALFORMED = -2;
+
+    /** What one page yielded. Any field may be null. */
+    record Tokens(String apiKey, String clientVersion, String continuation, long charsRead, boolean stoppedEarly,
+                  String snippet) {
+        boolean complete() {
+            return apiKey != null && clientVersion != null && continuation != null;
+        }
+    }
+
+    private final StringBuilder buf = new StringBuilder(16 * 1024);
+    private final StringBuilder snippet = new StringBuilder(SNIPPET_LEN);
+
+    private String apiKey;
+    private String clientVersion;
+    private int versionRank = VERSION_NONE;
+    private String continuation;
+    private int continuationRank = RANK_NONE;
+    private int anchorRank = RANK_NONE;
+    private long charsRead;
+
+    /** Scans the stream and closes it; closing early is what aborts the rest of the download. */
+    static Tokens scan(InputStream body) throws IOException {
+        try (Reader r = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+            return scan(r);
+        }
+    }
+
+    static Tokens scan(Reader r) throws IOException {
+        PageTokenScanner s = new PageTokenScanner();
+        char[] chunk = new char[8192];
+        int n;
+        while ((n = r.read(chunk)) != -1) {
+            if (s.feed(chunk, n)) return s.result(true);
+        }
+        return s.result(false);
+    }
+
+    /** @return true once every token has been found and the caller can stop reading */
+    boolean feed(char[] chunk, int n) {
+        if (snippet.length() < SNIPPET_LEN) {
+            snippet.append(chunk, 0, Math.min(n, SNIPPET_LEN - snippet.length()));
+        }
+        charsRead += n;
+        buf.append(chunk, 0, n);
+        return process();
+    }
+
+    private boolean process() {
+        int cursor = 0;
+        while (!done()) {
+            int at = -1;
+            String marker = null;
+            for (String m : MARKERS) {
+                if (!wanted(m)) continue;
+                int i = buf.indexOf(m, cursor);
+                if (i >= 0 && (at < 0 || i < at)) {
+                    at = i;
+                    marker = m;
+                }
+            }
+
+            if (at < 0) {
+                // Keep a tail in case a marker straddles the chunk boundary
+                cursor = Math.max(cursor, buf.length() - LONGEST_MARKER);
+                break;
+            }
+
+            int end = handle(marker, at + marker.length());
+            if (end == INCOMPLETE) {
+                if (buf.length() - at > MAX_VALUE_LEN) {
+                    cursor = at + marker.length();
+                    continue;
+                }
+                cursor = at;
+                break;
+            }
+            cursor = (end == MALFORMED) ? at + marker.length() : end;
+        }
+
+        buf.delete(0, Math.min(cursor, buf.length()));
+        return done();
+    }
+
+    private boolean done() {
+        return apiKey != null && versionRank >= VERSION_CONTEXT && continuationRank >= RANK_RENDERER;
+    }
+
+    private boolean wanted(String marker) {
+        return switch (marker) {
+            case API_KEY -> apiKey == null;
+            case CONTEXT_CLIENT_VERSION -> versionRank < VERSION_CONTEXT;
+            case CLIENT_VERSION -> versionRank < VERSION_PLAIN;
+            case INITIAL_DATA -> anchorRank < RANK_INITIAL_DATA;
+            case LIVE_CHAT_RENDERER -> anchorRank < RANK_RENDERER;
+            case LIVE_CHAT_CONTINUATION -> anchorRank < RANK_LIVE_CHAT;
+            default -> anchorRank > continuationRank;
+        };
+    }
+
+    /** @return index just past what was consumed, or INCOMPLETE / MALFORMED */
+    private int handle(String marker, int from) {
+        switch (marker) {
+            case INITIAL_DATA -> {
+                anchorRank = Math.max(anchorRank, RANK_INITIAL_DATA);
+                return from;
+            }
+            case LIVE_CHAT_RENDERER -> {
+                anchorRank = Math.max(anchorRank, RANK_RENDERER);
+                return from;
+            }
+            case LIVE_CHAT_CONTINUATION -> {
+                anchorRank = RANK_LIVE_CHAT;
+                return from;
+            }
+            default -> {
+                // INNERTUBE_*"?\s*[:=]\s*"value"  or  "continuation"\s*:\s*"value"
+                boolean key = !marker.equals(CONTINUATION);
+                int i = from;
+                if (key && i < buf.length() && buf.charAt(i) == '"') i++;
+                i = skipWs(i);
+                if (i >= buf.length()) return INCOMPLETE;
+                char sep = buf.charAt(i);
+                if (sep != ':' && !(key && sep == '=')) return MALFORMED;
+                i = skipWs(i + 1);
+                if (i >= buf.length()) return INCOMPLETE;
+                if (buf.charAt(i) != '"') return MALFORMED;
+                int close = buf.indexOf("\"", i + 1);
+                if (close < 0) return INCOMPLETE;
+                if (close == i + 1) return MALFORMED;
+
+                accept(marker, buf.substring(i + 1, close));
+                return close + 1;
+            }
+        }
+    }
+
+    private void accept(String marker, String value) {
+        switch (marker) {
+            case API_KEY -> apiKey = value;
+            case CONTEXT_CLIENT_VERSION -> {
+                clientVersion = value;
+                versionRank = VERSION_CONTEXT;
+            }
+            case CLIENT_VERSION -> {
+                clientVersion = value;
+                versionRank = VERSION_PLAIN;
+            }
+            default -> {
+                continuation = value;
+                continuationRank = anchorRank;
+            }
+        }
+    }
+
+    private int skipWs(int i) {
+        while (i < buf.length() && Character.isWhitespace(buf.charAt(i))) i++;
+        return i;
+    }
+
+    private Tokens result(boolean stoppedEarly) {
+        String oneLine = snippet.toString().replace('\n', ' ').replace('\r', ' ');
+        return new Tokens(apiKey, clientVersion, continuation, charsRead, stoppedEarly, oneLine);
+    }
+}
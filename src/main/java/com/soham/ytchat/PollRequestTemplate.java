@@ -0,0 +1,94 @@
+package com.soham.ytchat;
+
+import com.google.gson.JsonObject;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A get_live_chat request with everything fixed for the session done once: the endpoint
+ * URI, the headers, and the body bytes around the continuation. A poll only writes the
+ * continuation into a scratch buffer that is reused between polls, then publishes its own
+ * copy: the client reads a body lazily and may read it again on a retry, after the next
+ * poll has already rewritten the scratch.
+ *
+ * One per client; {@link #request} is synchronized, so overlapping polls are safe.
+ */
+final class PollRequestTemplate {
+
+    private final HttpRequest.Builder base;
+    private final byte[] prefix;   // {"context":{...},"continuation":"
+    private final byte[] suffix;   // "}
+    private byte[] buf;
+    private int len;
+
+    PollRequestTemplate(String baseUrl, String apiKey, String clientVersion) {
+        URI endpoint = URI.create(baseUrl + "/youtubei/v1/live_chat/get_live_chat?key=" +
+                URLEncoder.encode(apiKey, StandardCharsets.UTF_8));
+
+        this.base = HttpRequest.newBuilder(endpoint)
+                .header("User-Agent", "Mozilla/5.0")
+                .header("Accept", "application/json")
+                .header("Accept-Language", "en-US,en;q=0.9")
+                .header("Origin", baseUrl)
+                .header("Referer", baseUrl + "/")
+                .header("Content-Type", "application/json");
+
+        // Let Gson do the escaping once; the continuation is the last member, so cut there
+        JsonObject body = new JsonObject();
+        JsonObject context = new JsonObject();
+        JsonObject client = new JsonObject();
+        client.addProperty("clientName", "WEB");
+        client.addProperty("clientVersion", clientVersion);
+        context.add("client", client);
+        body.add("context", context);
+        body.addProperty("continuation", "");
+
+        String json = body.toString();
+        int cut = json.length() - 2;   // before the closing "}
+        this.prefix = json.substring(0, cut).getBytes(StandardCharsets.UTF_8);
+        this.suffix = json.substring(cut).getBytes(StandardCharsets.UTF_8);
+        this.buf = new byte[prefix.length + 256 + suffix.length];
+    }
+
+    /** A ready-to-send POST for {@code continuation}. */
+    synchronized HttpRequest.Builder request(String continuation) {
+        fill(continuation);
+        // A few hundred bytes; the scratch only saves the escaping pass and its growth
+        return base.copy().POST(HttpRequest.BodyPublishers.ofByteArray(Arrays.copyOf(buf, len)));
+    }
+
+    private void fill(String continuation) {
+        // Worst case every char needs a 6-byte escape
+        int need = prefix.length + continuation.length() * 6 + suffix.length;
+        if (need > buf.length) buf = Arrays.copyOf(buf, Math.max(need, buf.length * 2));
+
+        System.arraycopy(prefix, 0, buf, 0, prefix.length);
+        int p = prefix.length;
+
+        // Continuations are URL-safe base64, so this is normally a straight byte copy
+        for (int i = 0; i < continuation.length(); i++) {
+            char c = continuation.charAt(i);
+            if (c >= 0x20 && c < 0x7F && c != '"' && c != '\\') {
+                buf[p++] = (byte) c;
+            } else {
+                buf[p++] = '\\';
+                buf[p++] = 'u';
+                buf[p++] = hex(c >> 12);
+                buf[p++] = hex(c >> 8);
+                buf[p++] = hex(c >> 4);
+                buf[p++] = hex(c);
+            }
+        }
+
+        System.arraycopy(suffix, 0, buf, p, suffix.length);
+        len = p + suffix.length;
+    }
+
+    private static byte hex(int v) {
+        return (byte) "0123456789abcdef".charAt(v & 0xF);
+    }
+}
@@ -0,0 +1,60 @@
+package com.soham.ytchat;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Poll counters for the scraper. Latency is recorded on the render thread when messages are shown. */
+public final class PollStats {
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong filtered = new AtomicLong();
+
+    private volatile long lastIntervalMs;
+    private volatile long lastLatencyMs = -1;
+    private volatile double avgLatencyMs = -1;
+
+    void onPoll() {
+        polls.incrementAndGet();
+    }
+
+    void onError() {
+        errors.incrementAndGet();
+    }
+
+    void addDuplicates(long n) {
+        if (n > 0) duplicates.addAndGet(n);
+    }
+
+    void addFiltered(long n) {
+        if (n > 0) filtered.addAndGet(n);
+    }
+
+    void setLastIntervalMs(long ms) {
+        lastIntervalMs = ms;
+    }
+
+    /** Time between the server stamping a message and it reaching the HUD. */
+    public void recordLatency(long ms) {
+        if (ms < 0) ms = 0;
+        lastLatencyMs = ms;
+        double avg = avgLatencyMs;
+        // EWMA so one slow poll doesn't hide the trend
+        avgLatencyMs = (avg < 0) ? ms : avg + (ms - avg) * 0.1;
+    }
+
+    public long pollCount() { return polls.get(); }
+    public long errorCount() { return errors.get(); }
+    public long duplicateCount() { return duplicates.get(); }
+    public long filteredCount() { return filtered.get(); }
+    public long lastIntervalMs() { return lastIntervalMs; }
+    public long lastLatencyMs() { return lastLatencyMs; }
+    public double avgLatencyMs() { return avgLatencyMs; }
+
+    @Override
+    public String toString() {
+        return "polls=" + pollCount() + " errors=" + errorCount() + " duplicates=" + duplicateCount() +
+                " filtered=" + filteredCount() +
+                " interval=" + lastIntervalMs + "ms latency=" + lastLatencyMs +
+                "ms avgLatency=" + Math.round(avgLatencyMs) + "ms http[" + HttpTransport.stats() + "] discovery[" + TokenDiscovery.stats() + "]";
+    }
+}
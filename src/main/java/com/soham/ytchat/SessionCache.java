@@ -0,0 +1,110 @@
+package com.soham.ytchat;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Last known chat session (API key, client version, continuation) per video ID, kept in a
+ * small JSON file so a restart can poll straight away instead of fetching the popout and
+ * watch pages again. The newest message shown is kept too, so a restart can catch up
+ * without repeating it ({@link CatchUp}). Entries are refreshed after every good poll and written out at most
+ * every few seconds.
+ */
+final class SessionCache {
+
+    private static final int MAX_ENTRIES = 32;
+    private static final long SAVE_EVERY_MS = 5_000;
+
+    private final Path file;
+    private final Gson gson = new Gson();
+
+    // Insertion order = least recently updated first, so trimming drops the stalest
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private boolean dirty;
+    private long savedAtMs;
+
+    record Entry(String apiKey, String clientVersion, String continuation, long updatedAtMs,
+                 String lastMessageId, long lastMessageMs) {}
+
+    SessionCache(Path file) {
+        this.file = file;
+        load();
+    }
+
+    /** The cached session for {@code videoId} if it was updated within {@code maxAgeMs}. */
+    synchronized Entry get(String videoId, long maxAgeMs) {
+        Entry e = entries.get(videoId);
+        if (e == null) return null;
+        if (System.currentTimeMillis() - e.updatedAtMs() > maxAgeMs) {
+            entries.remove(videoId);
+            dirty = true;
+            return null;
+        }
+        return e;
+    }
+
+    synchronized void put(String videoId, YouTubeLiveChatClient.Session s, String lastMessageId, long lastMessageMs) {
+        if (videoId == null || s == null || s.continuation() == null) return;
+        entries.remove(videoId);
+        entries.put(videoId, new Entry(s.apiKey(), s.clientVersion(), s.continuation(), System.currentTimeMillis(),
+                lastMessageId, lastMessageMs));
+        while (entries.size() > MAX_ENTRIES) {
+            entries.remove(entries.keySet().iterator().next());
+        }
+        dirty = true;
+        if (System.currentTimeMillis() - savedAtMs >= SAVE_EVERY_MS) save();
+    }
+
+    synchronized void remove(String videoId) {
+        if (entries.remove(videoId) != null) {
+            dirty = true;
+            save();
+        }
+    }
+
+    /** Write pending changes now. */
+    synchronized void save() {
+        if (!dirty) return;
+        savedAtMs = System.currentTimeMillis();
+        dirty = false;
+
+        JsonObject root = new JsonObject();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            root.add(e.getKey(), gson.toJsonTree(e.getValue()));
+        }
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            // Write then rename, so a crash mid-write never leaves a half file behind
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(tmp, gson.toJson(root), StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            Log.LOGGER.warn("Could not save the session cache to {}", file, e);
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(file)) return;
+        try {
+            JsonObject root = JsonParser.parseString(Files.readString(file, StandardCharsets.UTF_8)).getAsJsonObject();
+            for (Map.Entry<String, JsonElement> e : root.entrySet()) {
+                Entry v = gson.fromJson(e.getValue(), Entry.class);
+                if (v != null && v.apiKey() != null && v.continuation() != null) entries.put(e.getKey(), v);
+            }
+        } catch (Exception e) {
+            // A damaged cache only costs one page fetch per stream
+            Log.LOGGER.warn("Ignoring damaged session cache {}", file, e);
+            entries.clear();
+        }
+    }
+}
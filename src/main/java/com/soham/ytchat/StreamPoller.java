@@ -0,0 +1,248 @@
+package com.soham.ytchat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls one live chat. Each stream has its own client, continuation and backoff,
+ * and its HTTP work runs on its own virtual thread, so a slow stream never holds
+ * up the others. Results go back to the service as one batch per poll.
+ * Failures are handled by its {@link StreamRecovery}, which decides between retrying,
+ * fetching fresh tokens and backing off entirely.
+ */
+final class StreamPoller {
+
+    private final ChatScraperService service;
+    private final int session;
+    private final CancelToken cancelToken;
+    final String label;
+    final String url;
+
+    // Key for the session cache; null for URLs without a video ID
+    private final String videoId;
+
+    private final YouTubeLiveChatClient yt;
+
+    // Set instead of polling when the URL is replay:<file>
+    private ChatReplay replay;
+
+    final StreamRecovery recovery;
+    private final CatchUp catchUp;
+
+    // Everything this stream sent before this instant (local clock) has been delivered
+    volatile long watermarkMs = 0;
+    volatile boolean healthy;
+
+    private ScheduledFuture<?> task;
+
+    StreamPoller(ChatScraperService service, int session, CancelToken cancelToken, String label, String url) {
+        this.service = service;
+        this.session = session;
+        this.cancelToken = cancelToken;
+        this.label = label;
+        this.url = url;
+        this.videoId = YouTubeLiveChatClient.extractVideoId(url).orElse(null);
+        this.yt = new YouTubeLiveChatClient(label, new MessageDeduper(
+                Config.getDedupeWindow(), Config.isDedupeBloomEnabled() ? Config.getDedupeBloomCapacity() : 0));
+        this.yt.setRecorder(service.recorder());
+        this.yt.setCancelToken(cancelToken);
+        this.yt.setHedgeDelayMs(Config.getDiscoveryHedgeMs());
+        this.recovery = new StreamRecovery(label);
+        this.catchUp = new CatchUp(label);
+    }
+
+    /** @return false if the session is over and nothing was scheduled */
+    boolean schedule(long delayMs) {
+        synchronized (service) {
+            if (!service.isCurrent(session)) return false;
+            task = service.exec.schedule(() -> service.io.execute(this::poll), delayMs, TimeUnit.MILLISECONDS);
+            return true;
+        }
+    }
+
+    void cancel() {
+        synchronized (service) {
+            if (task != null) {
+                // If the poll never started, nothing else will close the replay file
+                if (task.cancel(false)) closeReplay();
+                task = null;
+            }
+        }
+    }
+
+    private void poll() {
+        if (!service.isCurrent(session)) {
+            closeReplay();
+            return;
+        }
+        if (ChatReplay.isReplayUrl(url)) {
+            replayStep();
+            return;
+        }
+
+        List<Chat> batch = new ArrayList<>();
+        long startedAtMs = System.currentTimeMillis();
+        recovery.configure(Config.getCircuitBreakerFailures(), Config.getCircuitBreakerOpenMs(),
+                Math.max(Config.getPollMinMs(), 1_000), Config.getErrorBackoffMaxMs());
+        StreamRecovery.State before = recovery.state();
+        long delayMs;
+        try {
+            long dupsBefore = yt.getDuplicateCount();
+            List<Chat> got = new ArrayList<>();
+            boolean renewed;
+            // Polled the continuation the last shown message came from, not a fresh page's
+            boolean continuous;
+            if (!recovery.needsDiscovery()) {
+                renewed = yt.pollOnce(got::add);
+                continuous = true;
+            } else if (before == StreamRecovery.State.CONNECTING && resumeCached(got)) {
+                // The resume already made this round's poll
+                batch.add(status("Resumed cached session. Polling chat..."));
+                renewed = true;
+                continuous = true;
+            } else {
+                yt.initFromStreamUrl(url);
+                if (before == StreamRecovery.State.CONNECTING) batch.add(status("Connected. Polling chat..."));
+                renewed = yt.pollOnce(got::add);
+                continuous = false;
+            }
+            long dups = yt.getDuplicateCount() - dupsBefore;
+            // Anything but a steady poll may have missed messages
+            if (before != StreamRecovery.State.LIVE) catchUp.begin(Config.getBackfillMaxMessages(), continuous);
+            catchUp.accept(got, dups > 0, startedAtMs, renewed, batch);
+            Metrics.POLLS.inc();
+            Metrics.MESSAGES.add(got.size());
+            Metrics.MESSAGES_PER_POLL.record(got.size());
+            service.stats.onPoll();
+            service.stats.addDuplicates(dups);
+            watermarkMs = startedAtMs;
+
+            if (renewed) {
+                if (videoId != null) service.sessions.put(videoId, yt.session(), catchUp.lastId(), catchUp.lastMs());
+                long took = recovery.onSuccess(System.currentTimeMillis());
+                if (took >= 0) batch.add(status(String.format(Locale.ROOT, "Reconnected after %.1fs.", took / 1000.0)));
+                healthy = true;
+                // Backfill pages are fetched back to back until they reach the present
+                delayMs = catchUp.active()
+                        ? Config.getPollMinMs()
+                        : clamp(yt.getServerTimeoutMs(), Config.getPollMinMs(), Config.getPollMaxMs());
+            } else {
+                // Delivered, but the server did not hand out a next continuation: chat ended or the token expired
+                if (videoId != null) service.sessions.remove(videoId);
+                delayMs = failed(StreamRecovery.Failure.STALE, "No next continuation", before, batch);
+            }
+
+        } catch (Exception e) {
+            // Aborted by a restart: the new session has its own pollers, so just stop
+            if (cancelToken.isCancelled()) return;
+            // Every retry of a dead stream ends up here
+            Log.warnLimited("poll " + label, "Chat poll failed for stream " + label, e);
+
+            StreamRecovery.Failure f;
+            if (e instanceof HttpStatusException hs && !hs.retryable()) f = StreamRecovery.Failure.STALE;
+            else if (e instanceof IllegalStateException || e instanceof IllegalArgumentException) f = StreamRecovery.Failure.NO_CHAT;
+            else f = StreamRecovery.Failure.TRANSIENT;
+            if (f == StreamRecovery.Failure.STALE && videoId != null) service.sessions.remove(videoId);
+
+            String msg = e.getMessage();
+            String error = e.getClass().getSimpleName() + ((msg == null || msg.isBlank()) ? "" : ": " + msg);
+            delayMs = failed(f, error, before, batch);
+        }
+
+        service.stats.setLastIntervalMs(delayMs);
+        service.deliver(session, batch);
+        schedule(delayMs);
+    }
+
+    /**
+     * Record a failed attempt. Only changes of state get a chat line; the details are in
+     * {@link StreamRecovery#status()}.
+     */
+    private long failed(StreamRecovery.Failure f, String error, StreamRecovery.State before, List<Chat> batch) {
+        healthy = false;
+        service.stats.onError();
+        long delayMs = recovery.onFailure(f, error, System.currentTimeMillis());
+        StreamRecovery.State now = recovery.state();
+        // A first connection keeps retrying in CONNECTING; say so on its first failure only
+        boolean firstConnectFailure = before == StreamRecovery.State.CONNECTING && recovery.consecutiveFailures() == 1;
+        if (now == before && !firstConnectFailure) return delayMs;
+
+        if (now == StreamRecovery.State.OPEN) {
+            batch.add(status(String.format(Locale.ROOT, "Chat unavailable (%s). Trying again in %ds.",
+                    shorten(error), delayMs / 1000)));
+        } else if (before == StreamRecovery.State.LIVE) {
+            batch.add(status("Chat connection lost (" + shorten(error) + "). Reconnecting..."));
+        } else if (before == StreamRecovery.State.CONNECTING) {
+            batch.add(status("Could not connect (" + shorten(error) + "). Retrying..."));
+        }
+        return delayMs;
+    }
+
+    private static String shorten(String s) {
+        return (s.length() <= 80) ? s : s.substring(0, 77) + "...";
+    }
+
+    /** Try the session cached from the last run before fetching any HTML. */
+    private boolean resumeCached(List<Chat> out) throws InterruptedException {
+        long maxAgeMs = Config.getSessionCacheMs();
+        if (videoId == null || maxAgeMs <= 0) return false;
+        SessionCache.Entry e = service.sessions.get(videoId, maxAgeMs);
+        if (e == null) return false;
+        // Even if the tokens are rejected, the page's backlog is caught up against this
+        catchUp.restore(e.lastMessageId(), e.lastMessageMs());
+
+        if (yt.resume(new YouTubeLiveChatClient.Session(e.apiKey(), e.clientVersion(), e.continuation()), out::add)) {
+            return true;
+        }
+        // Rejected: forget it and fall back to the page fetch in this same poll
+        service.sessions.remove(videoId);
+        out.clear();
+        return false;
+    }
+
+    private void replayStep() {
+        List<Chat> batch = new ArrayList<>();
+        long delayMs;
+        try {
+            if (replay == null) {
+                replay = ChatReplay.open(url, label);
+                batch.add(status("Replaying " + url.substring(ChatReplay.SCHEME.length())));
+            }
+            delayMs = replay.step(batch::add);
+            watermarkMs = System.currentTimeMillis();
+            healthy = true;
+        } catch (Exception e) {
+            Log.LOGGER.error("Replay of {} failed", url, e);
+            batch.add(status("Replay error: " + e.getClass().getSimpleName()));
+            delayMs = -1;
+        }
+
+        if (delayMs < 0) {
+            if (replay != null && replay.finished()) batch.add(status("Replay finished."));
+            // Keep the merge watermark moving so live streams are not held back by us
+            healthy = false;
+        }
+        service.deliver(session, batch);
+        if (delayMs < 0 || !schedule(delayMs)) closeReplay();
+    }
+
+    private void closeReplay() {
+        if (replay == null) return;
+        try { replay.close(); }
+        catch (Exception ignored) {}
+        replay = null;
+    }
+
+    private Chat status(String text) {
+        return Chat.status(text, label);
+    }
+
+    /** No server hint means nothing is pushing us, so fall back to the slow end of the range. */
+    private static long clamp(long serverTimeoutMs, long minMs, long maxMs) {
+        if (serverTimeoutMs < 0) return maxMs;
+        return Math.max(minMs, Math.min(maxMs, serverTimeoutMs));
+    }
+}
@@ -0,0 +1,165 @@
+package com.soham.ytchat;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Connection state of one stream, and what its poller should do next.
+ *
+ * Transient errors (timeouts, 429, 5xx) retry the same continuation with exponential
+ * backoff. A dead continuation (no next token, other 4xx) or a few transient errors in a
+ * row send the poller back through token discovery. After {@code circuitBreakerFailures}
+ * failures in a row the circuit opens: nothing is requested until the cool-down is over,
+ * then one fresh discovery is tried. Each reopen doubles the cool-down, up to an hour.
+ *
+ * Written by the poll in flight, read by the HUD; every method is synchronized.
+ */
+public final class StreamRecovery {
+
+    public enum State {
+        /** First connection, not yet succeeded. */
+        CONNECTING,
+        LIVE,
+        /** Retrying the current continuation. */
+        RETRYING,
+        /** Fetching fresh tokens on the next attempt. */
+        REDISCOVERING,
+        /** Circuit open: waiting out the cool-down before trying again. */
+        OPEN
+    }
+
+    enum Failure {
+        /** Network trouble or a server error; the tokens may still be good. */
+        TRANSIENT,
+        /** The continuation was rejected or not renewed. */
+        STALE,
+        /** Discovery found no live chat (offline, ended, chat disabled, bad URL). */
+        NO_CHAT
+    }
+
+    /** Point-in-time view for the HUD and the debug panel. */
+    public record Status(String label, State state, int consecutiveFailures, long totalFailures,
+                         long recoveries, long lastRecoveryMs, String lastError, long nextAttemptAtMs) {
+        @Override
+        public String toString() {
+            String s = String.format(Locale.ROOT, "%s %s fails %d/%d recovered %d",
+                    label, state, consecutiveFailures, totalFailures, recoveries);
+            if (lastRecoveryMs >= 0) s += String.format(Locale.ROOT, " (last %.1fs)", lastRecoveryMs / 1000.0);
+            if (state == State.OPEN) {
+                s += String.format(Locale.ROOT, " retry in %ds",
+                        Math.max(0, (nextAttemptAtMs - System.currentTimeMillis()) / 1000));
+            }
+            return s;
+        }
+    }
+
+    // Transient errors in a row before the tokens themselves are suspected
+    private static final int REDISCOVER_AFTER = 3;
+    private static final long OPEN_MAX_MS = 3_600_000;
+
+    private final String label;
+
+    // From the config; see configure
+    private int breakerFailures = 8;
+    private long openMs = 120_000;
+    private long backoffBaseMs = 1_000;
+    private long backoffCapMs = 60_000;
+
+    private State state = State.CONNECTING;
+    private int consecutiveFailures;
+    private long totalFailures;
+    private long recoveries;
+    private long failingSinceMs;
+    private long lastRecoveryMs = -1;
+    private String lastError;
+    private long nextAttemptAtMs;
+    private int opens;
+
+    StreamRecovery(String label) {
+        this.label = label;
+    }
+
+    /**
+     * @param breakerFailures failures in a row that open the circuit
+     * @param openMs first cool-down once it is open
+     * @param backoffBaseMs first retry delay, doubled per failure up to {@code backoffCapMs}
+     */
+    synchronized void configure(int breakerFailures, long openMs, long backoffBaseMs, long backoffCapMs) {
+        this.breakerFailures = Math.max(1, breakerFailures);
+        this.openMs = openMs;
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffCapMs = backoffCapMs;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+
+    synchronized int consecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /** True if the next attempt has to start with token discovery rather than a poll. */
+    synchronized boolean needsDiscovery() {
+        return state != State.LIVE && state != State.RETRYING;
+    }
+
+    /**
+     * A poll went through.
+     * @return how long recovery took if this ended an outage, else -1
+     */
+    synchronized long onSuccess(long nowMs) {
+        long took = -1;
+        if (failingSinceMs > 0) {
+            took = nowMs - failingSinceMs;
+            lastRecoveryMs = took;
+            recoveries++;
+        }
+        state = State.LIVE;
+        consecutiveFailures = 0;
+        failingSinceMs = 0;
+        opens = 0;
+        nextAttemptAtMs = 0;
+        return took;
+    }
+
+    /** @return how long to wait before the next attempt */
+    synchronized long onFailure(Failure f, String error, long nowMs) {
+        consecutiveFailures++;
+        totalFailures++;
+        lastError = error;
+        if (failingSinceMs == 0) failingSinceMs = nowMs;
+
+        long delayMs;
+        if (consecutiveFailures >= breakerFailures) {
+            // Half-open after the cool-down: one discovery attempt, and straight back here if it fails
+            state = State.OPEN;
+            delayMs = jitter(Math.min(OPEN_MAX_MS, openMs << Math.min(opens++, 12)));
+        } else {
+            // Never connected: every attempt is a discovery anyway
+            if (state != State.CONNECTING) {
+                boolean tokensSuspect = f != Failure.TRANSIENT || (state != State.LIVE && state != State.RETRYING)
+                        || consecutiveFailures >= REDISCOVER_AFTER;
+                state = tokensSuspect ? State.REDISCOVERING : State.RETRYING;
+            }
+            delayMs = backoffDelayMs(consecutiveFailures);
+        }
+        nextAttemptAtMs = nowMs + delayMs;
+        return delayMs;
+    }
+
+    synchronized Status status() {
+        return new Status(label, state, consecutiveFailures, totalFailures, recoveries,
+                lastRecoveryMs, lastError, nextAttemptAtMs);
+    }
+
+    /** Exponential backoff with "equal jitter": half the delay is fixed, half is random. */
+    private long backoffDelayMs(int errors) {
+        return jitter(Math.min(backoffCapMs, backoffBaseMs << Math.min(errors - 1, 16)));
+    }
+
+    private static long jitter(long d) {
+        long half = d / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+}
@@ -0,0 +1,24 @@
+package com.soham.ytchat;
+
+/**
+ * Glyph widths for laying out the HUD panel. In game this is the client's font
+ * ({@link FontTextMetrics}); tests and benchmarks use a fixed table, so layout runs without a client.
+ */
+interface TextMetrics {
+
+    /** Height of one line of text, in GUI pixels. */
+    int lineHeight();
+
+    /** Horizontal advance of one code point, in GUI pixels. */
+    int advance(int codePoint);
+
+    default int width(String s) {
+        int w = 0;
+        for (int i = 0; i < s.length(); ) {
+            int cp = s.codePointAt(i);
+            w += advance(cp);
+            i += Character.charCount(cp);
+        }
+        return w;
+    }
+}
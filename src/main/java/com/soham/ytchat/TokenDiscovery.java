@@ -0,0 +1,187 @@
+package com.soham.ytchat;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fetches a stream's popout and watch pages to find its chat tokens. Sequential mode
+ * only asks for the watch page when the popout page falls short. Hedged mode also starts
+ * the watch page when the popout page has not produced tokens within the hedge delay (0
+ * starts both at once). The first page with a usable token set wins, and the other
+ * request is cancelled. Wins and latency per page are kept in {@link #stats()}.
+ */
+final class TokenDiscovery {
+
+    enum Source { POPOUT, WATCH }
+
+    /** One page's outcome: its scan, or the error that stopped it. */
+    record Page(Source source, int status, URI uri, PageTokenScanner.Tokens tokens, Exception error, long elapsedMs) {
+        boolean usable() {
+            return tokens != null && tokens.apiKey() != null && tokens.continuation() != null;
+        }
+    }
+
+    /** Starts the request for one page. */
+    @FunctionalInterface
+    interface Fetcher {
+        HttpTransport.Response fetch(Source source, CancelToken cancel) throws Exception;
+    }
+
+    private static final Stats STATS = new Stats();
+
+    private TokenDiscovery() {}
+
+    static Stats stats() {
+        return STATS;
+    }
+
+    /**
+     * @param hedgeDelayMs negative for sequential, otherwise how long the popout page gets
+     *                     before the watch page is requested as well
+     * @return every page that finished, in the order they finished; a usable page, if any, is last
+     */
+    static List<Page> discover(Fetcher fetcher, CancelToken cancel, long hedgeDelayMs) throws InterruptedException {
+        return (hedgeDelayMs < 0) ? sequential(fetcher, cancel) : hedged(fetcher, cancel, hedgeDelayMs);
+    }
+
+    private static List<Page> sequential(Fetcher fetcher, CancelToken cancel) throws InterruptedException {
+        List<Page> out = new ArrayList<>(2);
+        for (Source s : Source.values()) {
+            STATS.of(s).attempts.incrementAndGet();
+            Page p = fetch(fetcher, s, cancel);
+            if (Thread.interrupted()) throw new InterruptedException();
+            STATS.finished(p);
+            out.add(p);
+            if (p.usable()) break;
+        }
+        return out;
+    }
+
+    private static List<Page> hedged(Fetcher fetcher, CancelToken cancel, long hedgeDelayMs) throws InterruptedException {
+        BlockingQueue<Page> done = new LinkedBlockingQueue<>();
+        EnumMap<Source, CancelToken> running = new EnumMap<>(Source.class);
+        List<Page> out = new ArrayList<>(2);
+        try {
+            start(fetcher, Source.POPOUT, cancel, running, done);
+
+            Page first = done.poll(hedgeDelayMs, TimeUnit.MILLISECONDS);
+            if (first != null) {
+                running.remove(first.source()).release();
+                STATS.finished(first);
+                out.add(first);
+                if (first.usable()) return out;
+            }
+            // Popout is slow or came up short: race (or fall back to) the watch page
+            start(fetcher, Source.WATCH, cancel, running, done);
+
+            while (!running.isEmpty()) {
+                Page p = done.take();
+                running.remove(p.source()).release();
+                STATS.finished(p);
+                out.add(p);
+                if (p.usable()) return out;
+            }
+            return out;
+        } finally {
+            // Whatever is still running lost the race
+            for (Map.Entry<Source, CancelToken> e : running.entrySet()) {
+                e.getValue().cancel();
+                e.getValue().release();
+                STATS.of(e.getKey()).lost.incrementAndGet();
+            }
+        }
+    }
+
+    private static void start(Fetcher fetcher, Source s, CancelToken parent,
+                              Map<Source, CancelToken> running, BlockingQueue<Page> done) {
+        CancelToken token = parent.child();
+        running.put(s, token);
+        STATS.of(s).attempts.incrementAndGet();
+        Thread.ofVirtual().name("ytchat-discover-" + s.name().toLowerCase(Locale.ROOT))
+                .start(() -> done.add(fetch(fetcher, s, token)));
+    }
+
+    private static Page fetch(Fetcher fetcher, Source s, CancelToken cancel) {
+        long start = System.nanoTime();
+        int status = -1;
+        URI uri = null;
+        try {
+            HttpTransport.Response resp = fetcher.fetch(s, cancel);
+            status = resp.statusCode();
+            uri = resp.uri();
+            PageTokenScanner.Tokens t = PageTokenScanner.scan(resp.body());
+            return new Page(s, status, uri, t, null, (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            return new Page(s, status, uri, null, e, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /** Per-page totals since startup. */
+    static final class Stats {
+        private final EnumMap<Source, PerSource> bySource = new EnumMap<>(Source.class);
+
+        Stats() {
+            for (Source s : Source.values()) bySource.put(s, new PerSource());
+        }
+
+        PerSource of(Source s) {
+            return bySource.get(s);
+        }
+
+        void finished(Page p) {
+            PerSource ps = of(p.source());
+            ps.totalMs.addAndGet(p.elapsedMs());
+            ps.finished.incrementAndGet();
+            ps.lastMs = p.elapsedMs();
+            if (p.usable()) ps.wins.incrementAndGet();
+            else ps.failures.incrementAndGet();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (Source s : Source.values()) {
+                if (!sb.isEmpty()) sb.append(' ');
+                sb.append(s.name().toLowerCase(Locale.ROOT)).append('[').append(of(s)).append(']');
+            }
+            return sb.toString();
+        }
+    }
+
+    static final class PerSource {
+        final AtomicLong attempts = new AtomicLong();
+        final AtomicLong wins = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong lost = new AtomicLong();
+        final AtomicLong finished = new AtomicLong();
+        final AtomicLong totalMs = new AtomicLong();
+        volatile long lastMs;
+
+        /** Share of attempts that produced the winning token set. */
+        double winRate() {
+            long n = attempts.get();
+            return (n == 0) ? 0 : (double) wins.get() / n;
+        }
+
+        /** Mean time to a finished page (won or failed; lost races are not timed). */
+        double avgMs() {
+            long n = finished.get();
+            return (n == 0) ? 0 : (double) totalMs.get() / n;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "won=%d/%d (%.0f%%) failed=%d lost=%d avg=%.0fms last=%dms",
+                    wins.get(), attempts.get(), winRate() * 100, failures.get(), lost.get(), avgMs(), lastMs);
+        }
+    }
+}
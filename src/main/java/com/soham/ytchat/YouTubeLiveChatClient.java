@@ -2,16 +2,17 @@ package com.soham.ytchat;
 
 import com.google.gson.*;
 
-import java.net.CookieManager;
-import java.net.CookiePolicy;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URLEncoder;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
-import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -35,98 +36,251 @@ public final class YouTubeLiveChatClient {
     private static final Pattern YT_INITIAL_DATA_RE =
             Pattern.compile("ytInitialData\\s*=\\s*(\\{.*?\\});", Pattern.DOTALL);
 
-    private final CookieManager cookies = new CookieManager(null, CookiePolicy.ACCEPT_ALL);
+    // Distinct authors remembered per client; a busy stream has a few hundred regulars
+    private static final int AUTHOR_CACHE_SIZE = 2048;
 
-    private final HttpClient http = HttpClient.newBuilder()
-            .cookieHandler(cookies)
-            .followRedirects(HttpClient.Redirect.NORMAL)
-            .connectTimeout(Duration.ofSeconds(10))
-            .build();
+    // Deadline for one request, headers and body together
+    private static final long REQUEST_TIMEOUT_MS = 15_000;
 
-    private final Gson gson = new Gson();
+    // -Dytchat.baseUrl=http://127.0.0.1:8080 points a whole client at a local stand-in server
+    static final String DEFAULT_BASE_URL = System.getProperty("ytchat.baseUrl", "https://www.youtube.com");
+
+    private final String baseUrl;
+
+    // Label stamped on every Chat this client produces (see Chat.source)
+    private final String source;
 
     private String apiKey;
     private String clientVersion;
     private String continuation;
 
-    // simple de-dupe
-    private String lastFingerprint;
+    // Built once per session in initFromStreamUrl; null until then
+    private PollRequestTemplate template;
+
+    // Server-suggested delay before the next poll (timeoutMs), or -1 if the last response had none
+    private long serverTimeoutMs = -1;
+
+    // De-dupe by renderer message id, so reloads that replay old items are dropped
+    // but a user legitimately repeating "gg" is not
+    private final MessageDeduper dedupe;
+
+    // Shared Author per regular, kept for the client's (= the session's) lifetime
+    private final AuthorCache authors = new AuthorCache(AUTHOR_CACHE_SIZE);
+
+    // Optional capture of raw responses for offline replay (see ChatCapture)
+    private volatile ChatCapture.Writer recorder;
+
+    // Aborts whatever request is in flight when the owning session ends
+    private volatile CancelToken cancel = CancelToken.NONE;
+
+    // See TokenDiscovery: negative fetches popout then watch, otherwise the watch page
+    // starts this long after the popout page unless the popout has already won
+    private volatile long hedgeDelayMs = -1;
+
+    public YouTubeLiveChatClient() {
+        this(null, new MessageDeduper(4096, 0));
+    }
+
+    YouTubeLiveChatClient(String source, MessageDeduper dedupe) {
+        this(DEFAULT_BASE_URL, source, dedupe);
+    }
+
+    /** @param baseUrl scheme and host every request goes to, without a trailing slash */
+    YouTubeLiveChatClient(String baseUrl, String source, MessageDeduper dedupe) {
+        this.baseUrl = baseUrl;
+        this.source = source;
+        this.dedupe = dedupe;
+    }
 
+    /** Forget the session and every message ID seen so far. */
     public void reset() {
+        clearSession();
+        dedupe.clear();
+    }
+
+    // Reconnects keep the dedupe window, so messages seen before an outage stay hidden
+    private void clearSession() {
         apiKey = null;
         clientVersion = null;
         continuation = null;
-        lastFingerprint = null;
+        template = null;
+        serverTimeoutMs = -1;
+    }
+
+    /** Messages dropped as already-seen since this client was created. */
+    public long getDuplicateCount() {
+        return dedupe.duplicateCount();
+    }
+
+    /** timeoutMs from the last poll's continuation data, or -1 if none was sent. */
+    public long getServerTimeoutMs() {
+        return serverTimeoutMs;
+    }
+
+    /** Tokens needed to keep polling a chat without fetching its page again. */
+    public record Session(String apiKey, String clientVersion, String continuation) {}
+
+    /** The current session, or null before initFromStreamUrl / resume has succeeded. */
+    public Session session() {
+        return (template == null) ? null : new Session(apiKey, clientVersion, continuation);
+    }
+
+    /**
+     * Pick up a saved session with one direct poll and no page fetch. Messages from that
+     * poll go to {@code out}. Returns false, with the session cleared, if the server rejects
+     * the tokens; initFromStreamUrl is the way in then.
+     */
+    public boolean resume(Session s, Consumer<Chat> out) throws InterruptedException {
+        clearSession();
+        apiKey = s.apiKey();
+        clientVersion = s.clientVersion();
+        continuation = s.continuation();
+        if (clientVersion == null || clientVersion.isBlank()) clientVersion = "2.20250101.00.00";
+        template = new PollRequestTemplate(baseUrl, apiKey, clientVersion);
+        try {
+            // An expired continuation comes back as an error status or without a next continuation
+            if (pollOnce(out)) return true;
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            // Rejected or unreachable; either way the page fetch decides
+            cancel.throwIfCancelled();
+        }
+        clearSession();
+        return false;
     }
 
     /** Call once when URL changes. */
     public void initFromStreamUrl(String streamUrl) throws Exception {
-        reset();
+        clearSession();
 
         String videoId = extractVideoId(streamUrl)
                 .orElseThrow(() -> new IllegalArgumentException("Could not extract video ID from URL"));
 
-        // 1) Try popout first
-        String popout = "https://www.youtube.com/live_chat?is_popout=1&v=" +
-                URLEncoder.encode(videoId, StandardCharsets.UTF_8);
-
-        HttpResponse<String> popResp = getHtml(popout, videoId);
-        if (!tryExtractTokens(popResp.body())) {
-            // 2) Fallback: watch page is often more reliable for ytcfg / ytInitialData
-            String watch = "https://www.youtube.com/watch?v=" +
-                    URLEncoder.encode(videoId, StandardCharsets.UTF_8);
-
-            HttpResponse<String> watchResp = getHtml(watch, videoId);
-            if (!tryExtractTokens(watchResp.body())) {
-                throw new IllegalStateException(
-                        "Could not extract live chat tokens. " +
-                        "popoutStatus=" + popResp.statusCode() + " popoutUri=" + popResp.uri() +
-                        " watchStatus=" + watchResp.statusCode() + " watchUri=" + watchResp.uri() +
-                        " snippet=" + safeSnippet(watchResp.body())
-                );
-            }
+        String enc = URLEncoder.encode(videoId, StandardCharsets.UTF_8);
+        // The popout page is smaller; the watch page is often more reliable for ytcfg / ytInitialData
+        String popout = baseUrl + "/live_chat?is_popout=1&v=" + enc;
+        String watch = baseUrl + "/watch?v=" + enc;
+
+        List<TokenDiscovery.Page> pages = TokenDiscovery.discover(
+                (src, token) -> getHtml(src == TokenDiscovery.Source.POPOUT ? popout : watch, videoId, token),
+                cancel, hedgeDelayMs);
+        cancel.throwIfCancelled();
+
+        // The winner goes first; a page that fell short may still fill in a missing field
+        TokenDiscovery.Page last = pages.isEmpty() ? null : pages.get(pages.size() - 1);
+        if (last != null && last.usable()) applyTokens(last.tokens());
+        for (TokenDiscovery.Page p : pages) {
+            if (p.tokens() != null) applyTokens(p.tokens());
         }
 
         if (apiKey == null || continuation == null) {
-            throw new IllegalStateException("Token extraction incomplete (apiKey or continuation is null).");
+            // Nothing usable: if every page failed outright, the first error says most
+            boolean anyScanned = false;
+            for (TokenDiscovery.Page p : pages) anyScanned |= p.tokens() != null;
+            if (!anyScanned && !pages.isEmpty()) throw pages.get(0).error();
+
+            StringBuilder msg = new StringBuilder("Could not extract live chat tokens.");
+            String snippet = null;
+            for (TokenDiscovery.Page p : pages) {
+                String name = p.source().name().toLowerCase(Locale.ROOT);
+                msg.append(' ').append(name).append("Status=").append(p.status())
+                        .append(' ').append(name).append("Uri=").append(p.uri());
+                if (p.tokens() != null) snippet = p.tokens().snippet();
+            }
+            throw new IllegalStateException(msg.append(" snippet=").append(safeSnippet(snippet)).toString());
         }
+
         if (clientVersion == null || clientVersion.isBlank()) {
             clientVersion = "2.20250101.00.00";
         }
+        template = new PollRequestTemplate(baseUrl, apiKey, clientVersion);
     }
 
-    /** Poll once and push any new messages into the provided queue. */
-    public void pollOnce(java.util.concurrent.ConcurrentLinkedQueue<Chat> out) throws Exception {
-        if (apiKey == null || continuation == null) return;
-
-        JsonObject body = new JsonObject();
-        JsonObject context = new JsonObject();
-        JsonObject client = new JsonObject();
-        client.addProperty("clientName", "WEB");
-        client.addProperty("clientVersion", clientVersion);
-        context.add("client", client);
-        body.add("context", context);
-        body.addProperty("continuation", continuation);
+    /**
+     * Poll once and hand any new messages to {@code out}, in response order.
+     * @return true if the response carried a continuation to poll next
+     */
+    public boolean pollOnce(Consumer<Chat> out) throws Exception {
+        if (template == null || continuation == null) return false;
+
+        ChatCapture.Writer rec = recorder;
+        long startMs = System.currentTimeMillis();
+        HttpTransport.Response resp = HttpTransport.send(template.request(continuation), cancel, REQUEST_TIMEOUT_MS);
+        try (InputStream in = resp.body()) {
+            if (resp.statusCode() != 200) {
+                throw new HttpStatusException("get_live_chat", resp.statusCode());
+            }
+            if (rec == null) {
+                return consumeResponse(in, out);
+            }
+            // Recording needs the raw bytes, so buffer the body instead of streaming it
+            byte[] raw = in.readAllBytes();
+            long nowMs = System.currentTimeMillis();
+            try {
+                rec.append(source, nowMs, nowMs - startMs, raw);
+            } catch (IOException e) {
+                recorder = null;
+                Log.LOGGER.warn("Capture write failed; stopped recording stream {}", source, e);
+            }
+            return consumeResponse(new ByteArrayInputStream(raw), out);
+        }
+    }
 
-        String url = "https://www.youtube.com/youtubei/v1/live_chat/get_live_chat?key=" +
-                URLEncoder.encode(apiKey, StandardCharsets.UTF_8);
+    /** Abort in-flight and future requests when {@code token} is cancelled. */
+    void setCancelToken(CancelToken token) {
+        this.cancel = token;
+    }
 
-        String json = postJson(url, gson.toJson(body));
-        JsonObject root = JsonParser.parseString(json).getAsJsonObject();
+    /** How long the popout page gets before the watch page is fetched too; negative = only on failure. */
+    void setHedgeDelayMs(long ms) {
+        this.hedgeDelayMs = ms;
+    }
 
-        extractMessages(root, out);
+    /** Append every raw poll response to {@code rec}, or stop recording with null. */
+    void setRecorder(ChatCapture.Writer rec) {
+        this.recorder = rec;
+    }
 
-        String next = extractNextContinuation(root);
-        if (next != null && !next.isBlank()) {
-            continuation = next;
+    /**
+     * Parse one get_live_chat response body, queue its messages and advance the continuation.
+     * @return true if the body had a next continuation
+     */
+    boolean consumeResponse(InputStream body, Consumer<Chat> out) throws IOException {
+        long t0 = Metrics.start();
+        NextContinuation next = LiveChatStreamParser.parse(body, (id, kind, author, channelId, text, timestampMs) -> {
+            if (dedupe.isDuplicate(id)) return;
+            out.accept(new Chat(id, kind, authors.intern(author, channelId), text.strip(), timestampMs, source));
+        });
+
+        Metrics.PARSE_US.stop(t0);
+
+        serverTimeoutMs = (next == null) ? -1 : next.timeoutMs();
+        if (next != null && next.token() != null && !next.token().isBlank()) {
+            continuation = next.token();
+            return true;
         }
+        // This token is spent; polling it again would only repeat the same dead answer
+        continuation = null;
+        return false;
     }
 
     // --------------------------
     // Token extraction
     // --------------------------
 
-    private boolean tryExtractTokens(String html) {
+    /** Fill in whatever is still missing from one page's scan. */
+    private boolean applyTokens(PageTokenScanner.Tokens t) {
+        if (apiKey == null) apiKey = t.apiKey();
+        if (clientVersion == null) clientVersion = t.clientVersion();
+        if (continuation == null) continuation = t.continuation();
+        return apiKey != null && continuation != null;
+    }
+
+    // Regex + tree search over a fully buffered page. Pages go through PageTokenScanner;
+    // this stays as the reference implementation the benchmarks compare against.
+
+    boolean tryExtractTokens(String html) {
         if (html == null || html.isBlank()) return false;
 
         // Prefer ytcfg.set({...})
@@ -176,7 +330,7 @@ public final class YouTubeLiveChatClient {
         return apiKey != null && continuation != null;
     }
 
-    private static String deepFindFirstContinuation(JsonElement root) {
+    static String deepFindFirstContinuation(JsonElement root) {
         // DFS search for a property named "continuation" with a primitive string
         if (root == null) return null;
 
@@ -202,33 +356,16 @@ public final class YouTubeLiveChatClient {
     // Network helpers
     // --------------------------
 
-    private HttpResponse<String> getHtml(String url, String videoId) throws Exception {
-        HttpRequest req = HttpRequest.newBuilder(URI.create(url))
-                .timeout(Duration.ofSeconds(15))
+    private HttpTransport.Response getHtml(String url, String videoId, CancelToken token) throws Exception {
+        HttpRequest.Builder req = HttpRequest.newBuilder(URI.create(url))
                 .header("User-Agent", "Mozilla/5.0")
                 .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
                 .header("Accept-Language", "en-US,en;q=0.9")
-                .header("Origin", "https://www.youtube.com")
-                .header("Referer", "https://www.youtube.com/watch?v=" + videoId)
-                .GET()
-                .build();
-
-        return http.send(req, HttpResponse.BodyHandlers.ofString());
-    }
-
-    private String postJson(String url, String jsonBody) throws Exception {
-        HttpRequest req = HttpRequest.newBuilder(URI.create(url))
-                .timeout(Duration.ofSeconds(15))
-                .header("User-Agent", "Mozilla/5.0")
-                .header("Accept", "application/json")
-                .header("Accept-Language", "en-US,en;q=0.9")
-                .header("Origin", "https://www.youtube.com")
-                .header("Referer", "https://www.youtube.com/")
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-                .build();
+                .header("Origin", baseUrl)
+                .header("Referer", baseUrl + "/watch?v=" + videoId)
+                .GET();
 
-        return http.send(req, HttpResponse.BodyHandlers.ofString()).body();
+        return HttpTransport.send(req, token, REQUEST_TIMEOUT_MS);
     }
 
     private static Optional<String> find1(Pattern p, String s) {
@@ -248,7 +385,10 @@ public final class YouTubeLiveChatClient {
     // Parsing live chat JSON responses
     // --------------------------
 
-    private void extractMessages(JsonObject root, java.util.concurrent.ConcurrentLinkedQueue<Chat> out) {
+    // Tree-walking parser. Polls go through LiveChatStreamParser; this stays as the
+    // reference implementation the benchmarks compare against.
+
+    void extractMessages(JsonObject root, Consumer<Chat> out) {
         JsonArray actions = deepGetArray(root,
                 "continuationContents", "liveChatContinuation", "actions");
 
@@ -272,15 +412,18 @@ public final class YouTubeLiveChatClient {
             String text = concatRunsText(deepGetArray(msg, "message", "runs"));
             if (text == null || text.isBlank()) continue;
 
-            String fp = author + "|" + text;
-            if (fp.equals(lastFingerprint)) continue;
-            lastFingerprint = fp;
+            String id = deepGetString(msg, "id");
+            if (dedupe.isDuplicate(id)) continue;
 
-            out.add(new Chat(author, text));
+            out.accept(new Chat(id, Chat.Kind.TEXT, authors.intern(author, deepGetString(msg, "authorExternalChannelId")),
+                    text.strip(), parseTimestampMs(deepGetString(msg, "timestampUsec")), source));
         }
     }
 
-    private String extractNextContinuation(JsonObject root) {
+    /** Continuation token plus the server's requested wait (timeoutMs, -1 if absent). */
+    record NextContinuation(String token, long timeoutMs) {}
+
+    NextContinuation extractNextContinuation(JsonObject root) {
         JsonArray conts = deepGetArray(root,
                 "continuationContents", "liveChatContinuation", "continuations");
         if (conts == null) return null;
@@ -288,19 +431,36 @@ public final class YouTubeLiveChatClient {
         for (JsonElement el : conts) {
             JsonObject c = el.getAsJsonObject();
 
-            String timed = deepGetString(c, "timedContinuationData", "continuation");
-            if (timed != null) return timed;
+            JsonObject timed = deepGetObj(c, "timedContinuationData");
+            if (timed != null && timed.has("continuation")) return continuationOf(timed);
 
-            String inval = deepGetString(c, "invalidationContinuationData", "continuation");
-            if (inval != null) return inval;
+            JsonObject inval = deepGetObj(c, "invalidationContinuationData");
+            if (inval != null && inval.has("continuation")) return continuationOf(inval);
 
             String reload = deepGetString(c, "reloadContinuationData", "continuation");
-            if (reload != null) return reload;
+            if (reload != null) return new NextContinuation(reload, -1);
         }
         return null;
     }
 
-    private static String concatRunsText(JsonArray runs) {
+    private static NextContinuation continuationOf(JsonObject data) {
+        String token = deepGetString(data, "continuation");
+        String timeout = deepGetString(data, "timeoutMs");
+        long timeoutMs = -1;
+        if (timeout != null) {
+            try { timeoutMs = Long.parseLong(timeout); }
+            catch (NumberFormatException ignored) {}
+        }
+        return new NextContinuation(token, timeoutMs);
+    }
+
+    private static long parseTimestampMs(String usec) {
+        if (usec == null) return 0;
+        try { return Long.parseLong(usec) / 1000; }
+        catch (NumberFormatException e) { return 0; }
+    }
+
+    static String concatRunsText(JsonArray runs) {
         if (runs == null) return null;
         StringBuilder sb = new StringBuilder();
         for (JsonElement e : runs) {
@@ -5,6 +5,9 @@ import net.minecraft.client.gui.components.EditBox;
 import net.minecraft.client.gui.screens.Screen;
 import net.minecraft.network.chat.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public final class YtchatConfigScreen extends Screen {
     private final Screen parent;
     private EditBox urlBox;
@@ -19,27 +22,35 @@ public final class YtchatConfigScreen extends Screen {
         int w = this.width;
         int y = 60;
 
-        urlBox = new EditBox(this.font, w / 2 - 160, y, 320, 20, Component.literal("Chat URL"));
+        // One or more stream URLs, separated by spaces or commas
+        urlBox = new EditBox(this.font, w / 2 - 160, y, 320, 20, Component.literal("Chat URLs"));
         urlBox.setMaxLength(2048);
-        urlBox.setValue(Config.getChatUrl());
+        urlBox.setValue(String.join(", ", Config.getChatUrls()));
         this.addRenderableWidget(urlBox);
 
         this.addRenderableWidget(Button.builder(Component.literal("Save"), btn -> {
-            String v = urlBox.getValue().trim();
-
-            if (!Config.isValidUrl(v)) {
-                urlBox.setValue(Config.getChatUrl());
+            List<String> urls = new ArrayList<>();
+            for (String part : urlBox.getValue().split("[\\s,]+")) {
+                if (part.isEmpty()) continue;
+                if (!Config.isValidUrl(part)) {
+                    urlBox.setValue(String.join(", ", Config.getChatUrls()));
+                    return;
+                }
+                if (!urls.contains(part)) urls.add(part);
+            }
+            if (urls.isEmpty()) {
+                urlBox.setValue(String.join(", ", Config.getChatUrls()));
                 return;
             }
 
-            Config.CHAT_URL.set(v);
+            Config.setChatUrls(urls);
 
             if (Config.CLIENT_CONFIG != null) {
                 Config.CLIENT_CONFIG.save();
             }
 
             if (ExampleMod.SCRAPER != null) {
-                ExampleMod.SCRAPER.restart(v);
+                ExampleMod.SCRAPER.restart(urls);
             }
 
             this.minecraft.setScreen(parent);
@@ -48,6 +59,10 @@ public final class YtchatConfigScreen extends Screen {
         this.addRenderableWidget(Button.builder(Component.literal("Cancel"), btn -> {
             this.minecraft.setScreen(parent);
         }).bounds(w / 2 + 10, y + 40, 150, 20).build());
+
+        this.addRenderableWidget(Button.builder(Component.literal("Chat History..."), btn -> {
+            this.minecraft.setScreen(new ChatHistoryScreen(this));
+        }).bounds(w / 2 - 160, y + 70, 320, 20).build());
     }
 
     @Override
@@ -0,0 +1,252 @@
+package com.soham.ytchat;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A local stand-in for the three YouTube endpoints the client talks to: the popout and
+ * watch pages (ytcfg.set + ytInitialData) and get_live_chat. Each video ID is its own
+ * chat that produces messages at {@link Options#messagesPerMinute}, stamped with the
+ * real time they were "sent", so the client side can measure end-to-end latency.
+ */
+final class FakeInnerTubeServer implements AutoCloseable {
+
+    static final String API_KEY = "AIzaSoakTestKey";
+
+    private static final String[] WORDS = {
+            "gg", "W", "lol", "no way", "clip it", "first", "that was insane", "chat is fast today",
+            "hi from brazil", "build a castle next", "how did he survive that", "POG"
+    };
+    private static final String[] AUTHORS = {
+            "Steve", "Alex", "xX_Creeper_Xx", "NotchFan2009", "redstone_wizard", "Bob", "Ender Pearl"
+    };
+
+    /** Knobs for the synthetic chat. */
+    static final class Options {
+        double messagesPerMinute = 3_000;
+        int wordsPerMessage = 6;          // average; actual is 1..2x
+        double emojiRatio = 0.3;          // chance a run is an emoji instead of text
+        double errorRate = 0.0;           // chance a poll gets a 503
+        double reloadRate = 0.0;          // chance a poll gets a reload continuation + replayed items
+        int replayOnReload = 50;          // how many recent items a reload repeats
+        long timeoutMs = 1_000;           // suggested delay the server hands back
+    }
+
+    private final Options opt;
+    private final HttpServer server;
+    private final Map<String, Stream> streams = new ConcurrentHashMap<>();
+
+    final AtomicLong generated = new AtomicLong();
+    final AtomicLong polls = new AtomicLong();
+    final AtomicLong injectedErrors = new AtomicLong();
+    final AtomicLong injectedReloads = new AtomicLong();
+
+    FakeInnerTubeServer(Options opt) throws IOException {
+        this.opt = opt;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/live_chat", this::page);
+        server.createContext("/watch", this::page);
+        server.createContext("/youtubei/v1/live_chat/get_live_chat", this::getLiveChat);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    // --------------------------
+    // Endpoints
+    // --------------------------
+
+    private void page(HttpExchange ex) throws IOException {
+        String videoId = queryParam(ex.getRequestURI().getRawQuery(), "v");
+        if (videoId == null) {
+            send(ex, 404, "text/plain", "no v".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        stream(videoId);
+
+        String html = "<!DOCTYPE html><html><head><script>ytcfg.set({\"INNERTUBE_API_KEY\":\"" + API_KEY + "\"," +
+                "\"INNERTUBE_CONTEXT_CLIENT_VERSION\":\"2.20250101.00.00\",\"HL\":\"en\"});</script>" +
+                "<script>var ytInitialData = {\"contents\":{\"liveChatRenderer\":{\"continuations\":[" +
+                "{\"invalidationContinuationData\":{\"timeoutMs\":" + opt.timeoutMs + ",\"continuation\":\"" +
+                videoId + ".0\"}}],\"actions\":[]}}};</script></head><body></body></html>";
+        send(ex, 200, "text/html; charset=utf-8", html.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void getLiveChat(HttpExchange ex) throws IOException {
+        polls.incrementAndGet();
+        JsonObject req;
+        try {
+            req = JsonParser.parseString(new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8))
+                    .getAsJsonObject();
+        } catch (Exception e) {
+            send(ex, 400, "text/plain", "bad json".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        String token = req.has("continuation") ? req.get("continuation").getAsString() : "";
+        int dot = token.lastIndexOf('.');
+        if (dot <= 0) {
+            send(ex, 400, "text/plain", "bad continuation".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        if (rnd.nextDouble() < opt.errorRate) {
+            injectedErrors.incrementAndGet();
+            send(ex, 503, "text/plain", "injected".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        Stream s = stream(token.substring(0, dot));
+        boolean reload = rnd.nextDouble() < opt.reloadRate;
+        if (reload) injectedReloads.incrementAndGet();
+
+        StringBuilder sb = new StringBuilder(8192);
+        synchronized (s) {
+            sb.append("{\"responseContext\":{\"serviceTrackingParams\":[]},\"continuationContents\":{\"liveChatContinuation\":{");
+            String next = s.videoId + "." + (++s.seq);
+            if (reload) {
+                sb.append("\"continuations\":[{\"reloadContinuationData\":{\"continuation\":\"").append(next).append("\"}}],");
+            } else {
+                sb.append("\"continuations\":[{\"invalidationContinuationData\":{\"timeoutMs\":").append(opt.timeoutMs)
+                        .append(",\"continuation\":\"").append(next).append("\"}}],");
+            }
+
+            sb.append("\"actions\":[");
+            boolean first = true;
+            if (reload) {
+                // A reload repeats recent items; the client's dedupe should drop all of them
+                for (String item : s.recent) {
+                    if (!first) sb.append(',');
+                    sb.append(item);
+                    first = false;
+                }
+            }
+            for (String item : s.produce(rnd)) {
+                if (!first) sb.append(',');
+                sb.append(item);
+                first = false;
+            }
+            sb.append("]}}}");
+        }
+
+        byte[] body = sb.toString().getBytes(StandardCharsets.UTF_8);
+        String accept = ex.getRequestHeaders().getFirst("Accept-Encoding");
+        if (accept != null && accept.contains("gzip")) {
+            ByteArrayOutputStream bo = new ByteArrayOutputStream(body.length / 4);
+            try (GZIPOutputStream gz = new GZIPOutputStream(bo)) {
+                gz.write(body);
+            }
+            ex.getResponseHeaders().add("Content-Encoding", "gzip");
+            body = bo.toByteArray();
+        }
+        send(ex, 200, "application/json", body);
+    }
+
+    private Stream stream(String videoId) {
+        return streams.computeIfAbsent(videoId, Stream::new);
+    }
+
+    private static void send(HttpExchange ex, int status, String type, byte[] body) throws IOException {
+        ex.getResponseHeaders().add("Content-Type", type);
+        ex.sendResponseHeaders(status, body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String queryParam(String query, String name) {
+        if (query == null) return null;
+        for (String part : query.split("&")) {
+            int eq = part.indexOf('=');
+            if (eq > 0 && part.substring(0, eq).equals(name)) return part.substring(eq + 1);
+        }
+        return null;
+    }
+
+    // --------------------------
+    // One synthetic chat
+    // --------------------------
+
+    private final class Stream {
+        final String videoId;
+        long seq;
+        long nextId;
+        long lastProducedNanos = System.nanoTime();
+        double owed;
+        final ArrayDeque<String> recent = new ArrayDeque<>();
+
+        Stream(String videoId) {
+            this.videoId = videoId;
+        }
+
+        /** Messages "sent" since the last poll, spread evenly over that interval. */
+        Iterable<String> produce(ThreadLocalRandom rnd) {
+            long now = System.nanoTime();
+            long elapsed = now - lastProducedNanos;
+            lastProducedNanos = now;
+
+            owed += opt.messagesPerMinute * elapsed / 60e9;
+            int n = (int) owed;
+            owed -= n;
+
+            long nowUsec = System.currentTimeMillis() * 1000;
+            long elapsedUsec = elapsed / 1000;
+            ArrayDeque<String> out = new ArrayDeque<>(n);
+            for (int i = 0; i < n; i++) {
+                long ts = nowUsec - elapsedUsec + (elapsedUsec * (i + 1)) / n;
+                String item = message(rnd, videoId + "-" + (nextId++), ts);
+                out.add(item);
+                recent.add(item);
+                if (recent.size() > opt.replayOnReload) recent.poll();
+            }
+            generated.addAndGet(n);
+            return out;
+        }
+    }
+
+    private String message(ThreadLocalRandom rnd, String id, long timestampUsec) {
+        StringBuilder sb = new StringBuilder(512);
+        sb.append("{\"addChatItemAction\":{\"item\":{\"liveChatTextMessageRenderer\":{\"message\":{\"runs\":[");
+        int runs = 1 + rnd.nextInt(Math.max(1, opt.wordsPerMessage * 2));
+        boolean anyText = false;
+        for (int r = 0; r < runs; r++) {
+            if (r > 0) sb.append(',');
+            // Always keep one text run so the message is not blank after emoji are dropped
+            if (rnd.nextDouble() < opt.emojiRatio && (anyText || r + 1 < runs)) {
+                sb.append("{\"emoji\":{\"emojiId\":\"UCkszU2WH9gy1mb0dV-11UJg/flhgYIqmG4rE8gSi1Y2gDw\",\"shortcuts\":[\":yt:\"],")
+                        .append("\"image\":{\"thumbnails\":[{\"url\":\"https://yt3.ggpht.com/emoji=w24-h24\",\"width\":24,\"height\":24}]},")
+                        .append("\"isCustomEmoji\":true}}");
+            } else {
+                sb.append("{\"text\":\"").append(WORDS[rnd.nextInt(WORDS.length)]).append(r + 1 < runs ? " " : "").append("\"}");
+                anyText = true;
+            }
+        }
+        sb.append("]},\"authorName\":{\"simpleText\":\"").append(AUTHORS[rnd.nextInt(AUTHORS.length)]).append("\"},")
+                .append("\"id\":\"").append(id).append("\",")
+                .append("\"timestampUsec\":\"").append(timestampUsec).append("\"}}}}");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,248 @@
+package com.soham.ytchat;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Soak test: a {@link FakeInnerTubeServer} flooding chat into the real client, ring buffer
+ * and a 20 tps time-budgeted drain that behaves like the HUD tick. Prints end-to-end latency, queue depth,
+ * heap after GC and drops every report interval. Exits non-zero if a message was shown twice,
+nothing arrived, or the ring lost track of a message. Runs headless:
+ * <pre>
+ *   ./gradlew soak -Psoak.args="--rate=6000 --streams=3 --minutes=30 --errors=0.01 --reloads=0.005"
+ * </pre>
+ */
+public final class SoakTest {
+
+    private final FakeInnerTubeServer.Options opt = new FakeInnerTubeServer.Options();
+    private int streams = 1;
+    private double minutes = 5;
+    private int reportSec = 10;
+    private int capacity = 1024;
+    private ChatRingBuffer.OverflowPolicy policy = ChatRingBuffer.OverflowPolicy.DROP_OLDEST;
+    private long drainBudgetUs = 1_000;
+    private long pollMinMs = 500, pollMaxMs = 10_000;
+
+    private ChatRingBuffer ring;
+    private final List<YouTubeLiveChatClient> clients = new ArrayList<>();
+
+    // Written by the tick thread only
+    private volatile long received;
+    // Written by the producer thread only
+    private volatile long offered;
+    private long[] latencies = new long[1 << 16];
+    private int latencyCount;
+    private volatile long maxDepth;
+
+    private volatile boolean running = true;
+
+    public static void main(String[] args) throws Exception {
+        SoakTest t = new SoakTest();
+        t.parse(args);
+        t.run();
+    }
+
+    private void parse(String[] args) {
+        for (String a : args) {
+            int eq = a.indexOf('=');
+            if (!a.startsWith("--") || eq < 0) throw new IllegalArgumentException("Expected --name=value, got " + a);
+            String k = a.substring(2, eq), v = a.substring(eq + 1);
+            switch (k) {
+                case "rate" -> opt.messagesPerMinute = Double.parseDouble(v);
+                case "words" -> opt.wordsPerMessage = Integer.parseInt(v);
+                case "emoji" -> opt.emojiRatio = Double.parseDouble(v);
+                case "errors" -> opt.errorRate = Double.parseDouble(v);
+                case "reloads" -> opt.reloadRate = Double.parseDouble(v);
+                case "timeoutMs" -> opt.timeoutMs = Long.parseLong(v);
+                case "streams" -> streams = Integer.parseInt(v);
+                case "minutes" -> minutes = Double.parseDouble(v);
+                case "report" -> reportSec = Integer.parseInt(v);
+                case "capacity" -> capacity = Integer.parseInt(v);
+                case "policy" -> policy = ChatRingBuffer.OverflowPolicy.valueOf(v.toUpperCase(Locale.ROOT));
+                case "budgetUs" -> drainBudgetUs = Long.parseLong(v);
+                case "pollMinMs" -> pollMinMs = Long.parseLong(v);
+                case "pollMaxMs" -> pollMaxMs = Long.parseLong(v);
+                default -> throw new IllegalArgumentException("Unknown option --" + k);
+            }
+        }
+    }
+
+    private void run() throws Exception {
+        ring = new ChatRingBuffer(capacity, policy);
+
+        try (FakeInnerTubeServer server = new FakeInnerTubeServer(opt)) {
+            System.out.printf(Locale.ROOT, "soak: %s, %d stream(s) at %.0f msg/min each, %.1f min, ring %d %s%n",
+                    server.baseUrl(), streams, opt.messagesPerMinute, minutes, ring.capacity(), policy);
+
+            // A stand-in for the scraper's threading, not ChatScraperService itself: that reads Config,
+            // which only exists inside Forge. One virtual thread polls each stream, one thread feeds the ring.
+            ExecutorService producer = Executors.newSingleThreadExecutor(r -> new Thread(r, "soak-scraper"));
+            ExecutorService io = Executors.newVirtualThreadPerTaskExecutor();
+            for (int i = 0; i < streams; i++) {
+                String label = Integer.toString(i + 1);
+                YouTubeLiveChatClient yt = new YouTubeLiveChatClient(server.baseUrl(), label, new MessageDeduper(4096, 0));
+                clients.add(yt);
+                io.execute(() -> pollLoop(yt, server.baseUrl() + "/watch?v=soak" + label, producer));
+            }
+
+            Thread tick = Thread.ofPlatform().name("soak-tick").start(this::tickLoop);
+
+            long baselineHeap = heapAfterGc();
+            long start = System.nanoTime();
+            long end = start + (long) (minutes * 60e9);
+            long lastReceived = 0;
+            while (System.nanoTime() < end) {
+                Thread.sleep(Math.min(reportSec * 1000L, Math.max(1, (end - System.nanoTime()) / 1_000_000)));
+                lastReceived = report(server, start, baselineHeap, lastReceived);
+            }
+
+            running = false;
+            io.shutdownNow();
+            producer.shutdown();
+            producer.awaitTermination(5, TimeUnit.SECONDS);
+            tick.join();
+
+            System.out.println("soak: done");
+            report(server, start, baselineHeap, lastReceived);
+            System.out.println("http: " + HttpTransport.stats());
+        }
+
+        List<String> failures = check();
+        if (!failures.isEmpty()) {
+            failures.forEach(f -> System.out.println("soak: FAIL " + f));
+            System.exit(1);
+        }
+        System.out.println("soak: PASS");
+    }
+
+    /** Pass/fail after the drain: every message handed to the ring was shown once or counted as dropped. */
+    private List<String> check() {
+        List<String> out = new ArrayList<>();
+        long dups = 0;
+        for (YouTubeLiveChatClient c : clients) dups += c.getDuplicateCount();
+        if (dups > 0) out.add(dups + " duplicate(s) reached the client");
+        if (received == 0) out.add("no messages received");
+        long accounted = received + ring.droppedCount() + ring.size();
+        if (accounted != offered) {
+            out.add("ring offered " + offered + " but received + dropped + queued = " + accounted);
+        }
+        return out;
+    }
+
+    private void pollLoop(YouTubeLiveChatClient yt, String url, ExecutorService producer) {
+        int errors = 0;
+        boolean initialized = false;
+        while (running) {
+            long delayMs;
+            try {
+                if (!initialized) {
+                    yt.initFromStreamUrl(url);
+                    initialized = true;
+                }
+                List<Chat> batch = new ArrayList<>();
+                yt.pollOnce(batch::add);
+                if (!batch.isEmpty()) producer.execute(() -> {
+                    batch.forEach(ring::offer);
+                    offered += batch.size();
+                });
+                errors = 0;
+                long t = yt.getServerTimeoutMs();
+                delayMs = (t < 0) ? pollMaxMs : Math.max(pollMinMs, Math.min(pollMaxMs, t));
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                // The stand-in answers 503 on injected errors and pollOnce throws on any non-200
+                delayMs = Math.min(30_000, 1_000L << Math.min(++errors, 5));
+            }
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /** Drains like ChatHudLayer.tick: for up to {@code drainBudgetUs} every 50 ms tick. */
+    private void tickLoop() {
+        long tickNanos = 50_000_000;
+        long next = System.nanoTime();
+        while (running || ring.size() > 0) {
+            maxDepth = Math.max(maxDepth, ring.size());
+            long deadline = System.nanoTime() + drainBudgetUs * 1_000;
+            do {
+                Chat c = ring.poll();
+                if (c == null) break;
+                // COALESCE's "N messages skipped" line is the ring's own, not chat
+                if (c.kind() == Chat.Kind.STATUS) continue;
+                received++;
+                if (c.timestampMs() > 0) recordLatency(System.currentTimeMillis() - c.timestampMs());
+            } while (System.nanoTime() < deadline);
+            next += tickNanos;
+            long sleep = next - System.nanoTime();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep / 1_000_000, (int) (sleep % 1_000_000));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            } else {
+                next = System.nanoTime();
+            }
+        }
+    }
+
+    private synchronized void recordLatency(long ms) {
+        if (latencyCount == latencies.length) latencies = Arrays.copyOf(latencies, latencies.length * 2);
+        latencies[latencyCount++] = ms;
+    }
+
+    private synchronized long[] takeLatencies() {
+        long[] out = Arrays.copyOf(latencies, latencyCount);
+        latencyCount = 0;
+        return out;
+    }
+
+    private long report(FakeInnerTubeServer server, long start, long baselineHeap, long lastReceived) {
+        long[] lat = takeLatencies();
+        Arrays.sort(lat);
+        long dups = 0;
+        for (YouTubeLiveChatClient c : clients) dups += c.getDuplicateCount();
+
+        long got = received;
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT,
+                "[%6.0fs] generated=%d received=%d (+%d) dropped=%d dupes=%d depth=%d max=%d hwm=%d " +
+                        "latency p50=%dms p99=%dms max=%dms heapAfterGc=%+.1fMB polls=%d errors=%d reloads=%d%n",
+                secs, server.generated.get(), got, got - lastReceived, ring.droppedCount(), dups,
+                ring.size(), maxDepth, ring.highWaterMark(),
+                pct(lat, 0.50), pct(lat, 0.99), lat.length == 0 ? 0 : lat[lat.length - 1],
+                (heapAfterGc() - baselineHeap) / 1048576.0,
+                server.polls.get(), server.injectedErrors.get(), server.injectedReloads.get());
+        return got;
+    }
+
+    private static long pct(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))];
+    }
+
+    /** Heap in use right after the last collection, summed over heap pools; no forced GC. */
+    private static long heapAfterGc() {
+        long total = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP) continue;
+            MemoryUsage u = pool.getCollectionUsage();
+            if (u != null) total += u.getUsed();
+        }
+        return total;
+    }
+}
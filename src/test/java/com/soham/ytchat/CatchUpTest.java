@@ -0,0 +1,143 @@
+package com.soham.ytchat;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatchUpTest {
+
+    private static final Author A = new Author("Steve", "UCsteve");
+    private static final String GAP = "Up to 30s of chat from the outage could not be recovered.";
+
+    private static Chat chat(String id, long ms) {
+        return new Chat(id, Chat.Kind.TEXT, A, "msg " + id, ms, "1");
+    }
+
+    private static List<String> statusLines(List<Chat> out) {
+        List<String> lines = new ArrayList<>();
+        for (Chat c : out) if (c.kind() == Chat.Kind.STATUS) lines.add(c.chat());
+        return lines;
+    }
+
+    /** Seen up to message "a" at 10 s, then an outage until 60 s that needed fresh tokens. */
+    private static CatchUp afterOutage(int maxMessages) {
+        CatchUp cu = new CatchUp("1");
+        cu.accept(List.of(chat("a", 10_000)), false, 10_000, true, new ArrayList<>());
+        cu.begin(maxMessages, false);
+        assertTrue(cu.active());
+        return cu;
+    }
+
+    @Test
+    void releasesTheNewestAndSkipsWhatWasAlreadyShown() {
+        CatchUp cu = afterOutage(2);
+        List<Chat> out = new ArrayList<>();
+        cu.accept(List.of(chat("a", 10_000), chat("b", 20_000), chat("c", 40_000), chat("d", 58_000)), false, 60_000, true, out);
+
+        assertFalse(cu.active());
+        assertEquals(List.of("Caught up on 2 missed messages (1 older skipped)."), statusLines(out));
+        assertEquals(List.of("c", "d"), out.stream().filter(c -> c.kind() != Chat.Kind.STATUS).map(Chat::id).toList());
+        assertEquals("d", cu.lastId());
+    }
+
+    @Test
+    void saysOnlyWhatWasSkippedWhenNothingIsReplayed() {
+        CatchUp cu = afterOutage(0);
+        List<Chat> out = new ArrayList<>();
+        cu.accept(List.of(chat("a", 10_000), chat("b", 20_000), chat("c", 58_000)), false, 60_000, true, out);
+
+        assertEquals(List.of("Skipped 2 messages from the outage."), statusLines(out));
+        assertEquals(1, out.size());
+    }
+
+    @Test
+    void reportsTheGapWhenTheBacklogDoesNotReachBack() {
+        CatchUp cu = afterOutage(200);
+        List<Chat> out = new ArrayList<>();
+        cu.accept(List.of(chat("x", 40_000), chat("y", 58_000)), false, 60_000, true, out);
+
+        assertEquals(List.of("Caught up on 2 missed messages.", GAP), statusLines(out));
+    }
+
+    @Test
+    void noGapAfterRetryingTheSameContinuation() {
+        CatchUp cu = new CatchUp("1");
+        cu.accept(List.of(chat("a", 10_000)), false, 10_000, true, new ArrayList<>());
+        // The old continuation returns only what came after "a"
+        cu.begin(200, true);
+        List<Chat> out = new ArrayList<>();
+        cu.accept(List.of(chat("x", 40_000), chat("y", 58_000)), false, 60_000, true, out);
+
+        assertEquals(List.of("Caught up on 2 missed messages."), statusLines(out));
+    }
+
+    @Test
+    void quietWhenNothingWasMissed() {
+        CatchUp cu = afterOutage(200);
+        List<Chat> out = new ArrayList<>();
+        cu.accept(List.of(), false, 60_000, true, out);
+
+        assertTrue(out.isEmpty());
+        assertFalse(cu.active());
+    }
+
+    // --------------------------
+    // Through the client's parser and deduper, as StreamPoller drives it
+    // --------------------------
+
+    @Test
+    void backlogOverlapDroppedByTheDeduperCountsAsReachingBack() throws Exception {
+        YouTubeLiveChatClient yt = new YouTubeLiveChatClient("1", new MessageDeduper(4096, 0));
+        CatchUp cu = new CatchUp("1");
+        poll(yt, cu, response("a", 10_000), 10_000);
+
+        // Fresh tokens after the outage: the backlog repeats "a", which the deduper drops
+        cu.begin(200, false);
+        List<Chat> out = poll(yt, cu, response("a", 10_000, "x", 40_000, "y", 58_000), 60_000);
+
+        assertEquals(List.of("Caught up on 2 missed messages."), statusLines(out));
+        assertEquals(1, yt.getDuplicateCount());
+    }
+
+    @Test
+    void backlogWithoutOverlapReportsTheGap() throws Exception {
+        YouTubeLiveChatClient yt = new YouTubeLiveChatClient("1", new MessageDeduper(4096, 0));
+        CatchUp cu = new CatchUp("1");
+        poll(yt, cu, response("a", 10_000), 10_000);
+
+        cu.begin(200, false);
+        List<Chat> out = poll(yt, cu, response("x", 40_000, "y", 58_000), 60_000);
+
+        assertEquals(List.of("Caught up on 2 missed messages.", GAP), statusLines(out));
+    }
+
+    private static List<Chat> poll(YouTubeLiveChatClient yt, CatchUp cu, String body, long nowMs) throws Exception {
+        long dupsBefore = yt.getDuplicateCount();
+        List<Chat> got = new ArrayList<>();
+        boolean more = yt.consumeResponse(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), got::add);
+        List<Chat> out = new ArrayList<>();
+        cu.accept(got, yt.getDuplicateCount() > dupsBefore, nowMs, more, out);
+        return out;
+    }
+
+    /** A get_live_chat body with text messages given as id, timestamp pairs. */
+    private static String response(Object... idAndMs) {
+        StringBuilder sb = new StringBuilder("{\"continuationContents\":{\"liveChatContinuation\":{")
+                .append("\"continuations\":[{\"invalidationContinuationData\":{\"timeoutMs\":1000,\"continuation\":\"next\"}}],")
+                .append("\"actions\":[");
+        for (int i = 0; i < idAndMs.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"addChatItemAction\":{\"item\":{\"liveChatTextMessageRenderer\":{")
+                    .append("\"message\":{\"runs\":[{\"text\":\"hello\"}]},")
+                    .append("\"authorName\":{\"simpleText\":\"Steve\"},")
+                    .append("\"id\":\"").append(idAndMs[i]).append("\",")
+                    .append("\"timestampUsec\":\"").append(((Number) idAndMs[i + 1]).longValue() * 1000).append("\"}}}}");
+        }
+        return sb.append("]}}}").toString();
+    }
+}
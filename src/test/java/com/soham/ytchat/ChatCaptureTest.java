@@ -0,0 +1,83 @@
+package com.soham.ytchat;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatCaptureTest {
+
+    private static byte[] body(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> readAll(Path file) throws IOException {
+        List<String> out = new ArrayList<>();
+        try (ChatCapture.Reader r = new ChatCapture.Reader(file)) {
+            for (ChatCapture.Record rec; (rec = r.next()) != null; ) {
+                out.add(rec.source() + ":" + new String(rec.body(), StandardCharsets.UTF_8));
+            }
+        }
+        return out;
+    }
+
+    @Test
+    void roundTripsAcrossReopens() throws IOException {
+        Path file = Files.createTempFile("ytchat-capture", ".bin");
+        try {
+            Files.delete(file);
+            try (ChatCapture.Writer w = new ChatCapture.Writer(file)) {
+                w.append("1", 1_000, 40, body("{\"a\":1}"));
+            }
+            try (ChatCapture.Writer w = new ChatCapture.Writer(file)) {
+                w.append("2", 2_000, 50, body("{\"b\":2}"));
+            }
+            assertEquals(List.of("1:{\"a\":1}", "2:{\"b\":2}"), readAll(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void reopeningCutsOffATornLastRecord() throws IOException {
+        Path file = Files.createTempFile("ytchat-capture", ".bin");
+        try {
+            Files.delete(file);
+            try (ChatCapture.Writer w = new ChatCapture.Writer(file)) {
+                w.append("1", 1_000, 40, body("{\"a\":1}"));
+                w.append("1", 2_000, 40, body("{\"torn\":true}"));
+            }
+            // A crash in the middle of the second record
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                ch.truncate(ch.size() - 5);
+            }
+
+            try (ChatCapture.Writer w = new ChatCapture.Writer(file)) {
+                w.append("1", 3_000, 40, body("{\"c\":3}"));
+            }
+            assertEquals(List.of("1:{\"a\":1}", "1:{\"c\":3}"), readAll(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void refusesToAppendToSomethingElse() throws IOException {
+        Path file = Files.createTempFile("ytchat-capture", ".txt");
+        try {
+            Files.writeString(file, "not a capture");
+            assertThrows(IOException.class, () -> new ChatCapture.Writer(file));
+            assertEquals("not a capture", Files.readString(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.soham.ytchat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Widths from {@link FakeTextMetrics}: 6 px for most ASCII (k is 5, a space 4), 9 for CJK and emoji. */
+class ChatLayoutTest {
+
+    private static final TextMetrics M = new FakeTextMetrics();
+
+    // Man, ZWJ, woman, ZWJ, girl: one emoji on screen
+    private static final String FAMILY = "\ud83d\udc68\u200d\ud83d\udc69\u200d\ud83d\udc67";
+    // Heavy black heart plus VS16 (emoji presentation)
+    private static final String HEART = "\u2764\ufe0f";
+
+    private static List<String> wrap(String s, int maxW) {
+        List<String> out = new ArrayList<>();
+        ChatLayout.wrap(s, M, maxW, out);
+        for (String line : out) {
+            assertTrue(M.width(line) <= maxW || line.codePointCount(0, line.length()) == 1
+                    || line.equals(FAMILY), "line too wide: " + line);
+        }
+        return out;
+    }
+
+    @Test
+    void breaksAtSpacesAndDropsThem() {
+        // "aaaa bbbb" is 6*8 + 4 = 52 px; the next word does not fit in 60
+        assertEquals(List.of("aaaa bbbb", "cccc"), wrap("aaaa bbbb cccc", 60));
+        assertEquals(List.of("aaaa", "bbbb"), wrap("aaaa bbbb", 30));
+    }
+
+    @Test
+    void shortTextIsOneLine() {
+        assertEquals(List.of("gg"), wrap("gg", 60));
+        assertEquals(List.of(""), wrap("", 60));
+    }
+
+    @Test
+    void splitsAWordLongerThanALine() {
+        String x = "x".repeat(25);
+        assertEquals(List.of("x".repeat(10), "x".repeat(10), "x".repeat(5)), wrap(x, 60));
+        // The words around it still break at spaces
+        assertEquals(List.of("hi", "x".repeat(10), "x".repeat(5) + " yo"), wrap("hi " + "x".repeat(15) + " yo", 60));
+    }
+
+    @Test
+    void breaksBetweenCjkCharacters() {
+        // Five 9 px characters, three to a 27 px line
+        String kanji = "\u4eca\u65e5\u306e\u914d\u4fe1";
+        assertEquals(List.of("\u4eca\u65e5\u306e", "\u914d\u4fe1"), wrap(kanji, 27));
+        // Latin next to CJK can break at the boundary without a space
+        assertEquals(List.of("ok", "\u4eca\u65e5"), wrap("ok\u4eca\u65e5", 18));
+    }
+
+    @Test
+    void neverSplitsAZwjSequence() {
+        // Each family is 9 + 6 + 9 + 6 + 9 = 39 px; two do not fit in 50
+        assertEquals(List.of(FAMILY, FAMILY), wrap(FAMILY + FAMILY, 50));
+        // A word glued to it moves the whole sequence to the next line
+        assertEquals(List.of("abc", FAMILY), wrap("abc" + FAMILY, 45));
+        // Wider than a line by itself: split, as any overlong run is
+        List<String> tiny = wrap(FAMILY, 20);
+        assertEquals(FAMILY, String.join("", tiny));
+    }
+
+    @Test
+    void splitsAnOverlongWordBeforeACombiningMarksBase() {
+        // e + combining acute: the mark never starts a line
+        assertEquals(List.of("e".repeat(9), "e\u0301"), wrap("e".repeat(10) + "\u0301", 60));
+    }
+
+    @Test
+    void keepsVariationSelectorsWithTheirEmoji() {
+        // Each heart is 6 + 9 = 15 px; a break after every one at 20 px
+        assertEquals(List.of(HEART, HEART, HEART), wrap(HEART + HEART + HEART, 20));
+        assertEquals(List.of(HEART + HEART, HEART), wrap(HEART + HEART + HEART, 30));
+        // An emoji with a selector is still a break opportunity, like one without
+        assertEquals(List.of("aa gg" + HEART, "xx"), wrap("aa gg" + HEART + "xx", 45));
+        for (String line : wrap("gg" + HEART + HEART + "gg", 20)) {
+            assertFalse(line.startsWith("\ufe0f"), "line starts with a variation selector: " + line);
+        }
+    }
+
+    @Test
+    void stripsSectionSignsOnPush() {
+        ChatLayout layout = new ChatLayout(4, M, ChatLayout.WRAP_W);
+        layout.push("\u00a7kSteve: ", "\u00a7c\u00a7lred \u00a7rtext", 0xFFFFFFFF, null);
+        ChatLayout.Entry e = layout.snapshot("Chat").entries()[0];
+        assertEquals(1, e.headLines);
+        assertArrayEquals(new String[]{"kSteve: ", "clred rtext"}, e.lines);
+    }
+
+    @Test
+    void ringDropsTheOldestAndKeepsLineCount() {
+        ChatLayout layout = new ChatLayout(2, M, 60);
+        layout.push("a: ", "one", 0, null);
+        layout.push("b: ", "aaaa bbbb cccc", 0, null);
+        long third = layout.push("c: ", "three", 0, null);
+        ChatLayout.Snapshot snap = layout.snapshot("Chat");
+        assertEquals(2, snap.entries().length);
+        assertEquals("b: ", snap.entries()[0].lines[0]);
+        assertEquals(3 + 2, snap.totalLines());
+        assertEquals(-1, layout.slotOf(0));
+        assertTrue(layout.slotOf(third) >= 0);
+    }
+}
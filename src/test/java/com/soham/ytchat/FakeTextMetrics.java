@@ -0,0 +1,34 @@
+package com.soham.ytchat;
+
+import java.util.Arrays;
+
+/**
+ * Glyph widths close to the vanilla font's, without a client: 6 px for most ASCII, less
+ * for thin glyphs, 9 px for CJK and emoji (unifont fallback), 9 px lines.
+ */
+final class FakeTextMetrics implements TextMetrics {
+
+    private static final int[] ASCII = new int[128];
+
+    static {
+        Arrays.fill(ASCII, 6);
+        for (char c : "!',.:;|i".toCharArray()) ASCII[c] = 2;
+        for (char c : "`l".toCharArray()) ASCII[c] = 3;
+        for (char c : " I[]t".toCharArray()) ASCII[c] = 4;
+        for (char c : "\"()*<>fk{}".toCharArray()) ASCII[c] = 5;
+        ASCII['@'] = 7;
+        ASCII['~'] = 7;
+    }
+
+    @Override
+    public int lineHeight() {
+        return 9;
+    }
+
+    @Override
+    public int advance(int codePoint) {
+        if (codePoint < 128) return ASCII[codePoint];
+        if (codePoint < 0x2E80) return 6;
+        return 9;
+    }
+}
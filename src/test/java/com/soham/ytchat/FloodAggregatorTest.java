@@ -0,0 +1,67 @@
+package com.soham.ytchat;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FloodAggregatorTest {
+
+    private static final Author A = new Author("Steve", "UCsteve");
+    private static final Author B = new Author("Alex", "UCalex");
+
+    private static Chat chat(Author a, String text) {
+        return new Chat(null, Chat.Kind.TEXT, a, text, 0, "1");
+    }
+
+    private static FloodAggregator aggregator() {
+        FloodAggregator f = new FloodAggregator();
+        f.configure(10_000, 1_000);
+        return f;
+    }
+
+    @Test
+    void normalizesCaseRunsAndRepeats() {
+        assertEquals("w", FloodAggregator.normalize("W"));
+        assertEquals("w", FloodAggregator.normalize("w w W"));
+        assertEquals("w", FloodAggregator.normalize("WWW!!"));
+        assertEquals("g ez", FloodAggregator.normalize("GG gg, EZ"));
+        assertEquals("ab ba", FloodAggregator.normalize("ab ba"));
+        assertEquals("???", FloodAggregator.normalize("???"));
+    }
+
+    @Test
+    void mergesCopiesWithinTheWindow() {
+        FloodAggregator f = aggregator();
+        assertEquals(FloodAggregator.SHOW, f.offer(chat(A, "W"), 1_000));
+        FloodAggregator.Group g = f.group();
+        g.entrySeq = 0;
+
+        assertEquals(FloodAggregator.MERGED, f.offer(chat(B, "www!"), 2_000));
+        assertSame(g, f.group());
+        assertEquals(2, g.count);
+        assertTrue(g.mixedAuthors);
+
+        // Past the window a copy starts over
+        assertEquals(FloodAggregator.SHOW, f.offer(chat(A, "W"), 20_000));
+        assertNotSame(g, f.group());
+    }
+
+    @Test
+    void textsSharingASlotAreNeverMerged() {
+        // Find two different texts that land in the same table slot
+        String first = "msg0";
+        String other = null;
+        for (int i = 1; other == null; i++) {
+            String t = "msg" + i;
+            if (FloodAggregator.slot(FloodAggregator.normalize(t)) == FloodAggregator.slot(FloodAggregator.normalize(first))) {
+                other = t;
+            }
+        }
+
+        FloodAggregator f = aggregator();
+        assertEquals(FloodAggregator.SHOW, f.offer(chat(A, first), 1_000));
+        f.group().entrySeq = 0;
+        assertEquals(FloodAggregator.SHOW, f.offer(chat(A, other), 1_001));
+        assertEquals(1, f.group().count);
+    }
+}
@@ -0,0 +1,52 @@
+package com.soham.ytchat;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageTokenScannerTest {
+
+    private static final String FILLER = "<div>" + "x".repeat(20_000) + "</div>";
+
+    @Test
+    void stopsOnceEverythingIsFromItsPreferredSource() throws IOException {
+        String page = "<script>ytcfg.set({\"INNERTUBE_API_KEY\":\"key\",\"INNERTUBE_CONTEXT_CLIENT_VERSION\":\"2.2\"});</script>"
+                + "<script>var ytInitialData = {\"contents\":{\"liveChatRenderer\":{\"continuations\":[{\"continuation\":\"tok\"}]}}};</script>"
+                + FILLER;
+        PageTokenScanner.Tokens t = PageTokenScanner.scan(new StringReader(page));
+
+        assertEquals("key", t.apiKey());
+        assertEquals("2.2", t.clientVersion());
+        assertEquals("tok", t.continuation());
+        assertTrue(t.stoppedEarly());
+        assertTrue(t.charsRead() < page.length());
+    }
+
+    @Test
+    void keepsReadingForTheContextClientVersion() throws IOException {
+        // The plain version comes first; stopping there would miss the one ytcfg's context uses
+        String page = "<script>ytcfg.set({\"INNERTUBE_API_KEY\":\"key\",\"INNERTUBE_CLIENT_VERSION\":\"1.1\"});</script>"
+                + "<script>var ytInitialData = {\"contents\":{\"liveChatRenderer\":{\"continuations\":[{\"continuation\":\"tok\"}]}}};</script>"
+                + FILLER
+                + "<script>ytcfg.set({\"INNERTUBE_CONTEXT_CLIENT_VERSION\":\"2.2\"});</script>";
+        PageTokenScanner.Tokens t = PageTokenScanner.scan(new StringReader(page));
+
+        assertEquals("2.2", t.clientVersion());
+        assertEquals("tok", t.continuation());
+    }
+
+    @Test
+    void fallsBackToThePlainClientVersion() throws IOException {
+        String page = "<script>ytcfg.set({\"INNERTUBE_API_KEY\":\"key\",\"INNERTUBE_CLIENT_VERSION\":\"1.1\"});</script>"
+                + "<script>var ytInitialData = {\"contents\":{\"liveChatRenderer\":{\"continuations\":[{\"continuation\":\"tok\"}]}}};</script>"
+                + FILLER;
+        PageTokenScanner.Tokens t = PageTokenScanner.scan(new StringReader(page));
+
+        assertEquals("1.1", t.clientVersion());
+        assertTrue(t.complete());
+        assertFalse(t.stoppedEarly());
+    }
+}
@@ -0,0 +1,58 @@
+package com.soham.ytchat;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PollRequestTemplateTest {
+
+    /** Reads a body the way the client does: by subscribing to its publisher. */
+    private static String body(HttpRequest req) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        req.bodyPublisher().orElseThrow().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer b) {
+                byte[] a = new byte[b.remaining()];
+                b.get(a);
+                out.writeBytes(a);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                throw new AssertionError(t);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void writesTheContinuationIntoTheBody() {
+        PollRequestTemplate t = new PollRequestTemplate("https://example.com", "key", "2.2");
+        String json = body(t.request("abc\"d").build());
+        assertEquals("{\"context\":{\"client\":{\"clientName\":\"WEB\",\"clientVersion\":\"2.2\"}},\"continuation\":\"abc\\u0022d\"}", json);
+    }
+
+    @Test
+    void anEarlierBodyIsUnchangedByTheNextPoll() {
+        PollRequestTemplate t = new PollRequestTemplate("https://example.com", "key", "2.2");
+        HttpRequest first = t.request("first-token").build();
+        t.request("second-token-that-is-longer").build();
+        // The client reads bodies lazily, and again on a retry
+        assertTrue(body(first).contains("\"continuation\":\"first-token\""), body(first));
+    }
+}
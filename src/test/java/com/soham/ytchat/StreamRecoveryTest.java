@@ -0,0 +1,92 @@
+package com.soham.ytchat;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamRecoveryTest {
+
+    private static StreamRecovery recovery(int breakerFailures) {
+        StreamRecovery r = new StreamRecovery("test");
+        r.configure(breakerFailures, 120_000, 1_000, 60_000);
+        return r;
+    }
+
+    @Test
+    void firstConnectionFailsThenGoesLiveThenTripsTheBreaker() {
+        StreamRecovery r = recovery(3);
+        assertEquals(StreamRecovery.State.CONNECTING, r.state());
+        assertTrue(r.needsDiscovery());
+
+        // Never connected: stays in CONNECTING, and the poller sees this as the first failure
+        r.onFailure(StreamRecovery.Failure.NO_CHAT, "offline", 1_000);
+        assertEquals(StreamRecovery.State.CONNECTING, r.state());
+        assertEquals(1, r.consecutiveFailures());
+        assertTrue(r.needsDiscovery());
+
+        assertEquals(1_000, r.onSuccess(2_000));
+        assertEquals(StreamRecovery.State.LIVE, r.state());
+        assertEquals(0, r.consecutiveFailures());
+        assertFalse(r.needsDiscovery());
+
+        r.onFailure(StreamRecovery.Failure.TRANSIENT, "timeout", 3_000);
+        assertEquals(StreamRecovery.State.RETRYING, r.state());
+        assertFalse(r.needsDiscovery());
+
+        r.onFailure(StreamRecovery.Failure.TRANSIENT, "timeout", 4_000);
+        long delayMs = r.onFailure(StreamRecovery.Failure.TRANSIENT, "timeout", 5_000);
+        assertEquals(StreamRecovery.State.OPEN, r.state());
+        assertTrue(r.needsDiscovery());
+        // Equal jitter: between half and all of the cool-down
+        assertTrue(delayMs >= 60_000 && delayMs <= 120_000, "delay " + delayMs);
+        assertEquals(5_000 + delayMs, r.status().nextAttemptAtMs());
+    }
+
+    @Test
+    void staleContinuationRediscoversAtOnce() {
+        StreamRecovery r = recovery(8);
+        r.onSuccess(0);
+        r.onFailure(StreamRecovery.Failure.STALE, "No next continuation", 1_000);
+        assertEquals(StreamRecovery.State.REDISCOVERING, r.state());
+        assertTrue(r.needsDiscovery());
+    }
+
+    @Test
+    void transientErrorsInARowRediscover() {
+        StreamRecovery r = recovery(8);
+        r.onSuccess(0);
+        r.onFailure(StreamRecovery.Failure.TRANSIENT, "503", 1_000);
+        r.onFailure(StreamRecovery.Failure.TRANSIENT, "503", 2_000);
+        assertEquals(StreamRecovery.State.RETRYING, r.state());
+        r.onFailure(StreamRecovery.Failure.TRANSIENT, "503", 3_000);
+        assertEquals(StreamRecovery.State.REDISCOVERING, r.state());
+    }
+
+    @Test
+    void backoffDoublesUpToTheCap() {
+        StreamRecovery r = recovery(100);
+        r.onSuccess(0);
+        long bound = 1_000;
+        for (int i = 0; i < 10; i++) {
+            long d = r.onFailure(StreamRecovery.Failure.TRANSIENT, "timeout", i);
+            assertTrue(d >= bound / 2 && d <= bound, "failure " + (i + 1) + ": " + d + " not in [" + bound / 2 + ", " + bound + "]");
+            bound = Math.min(60_000, bound * 2);
+        }
+    }
+
+    @Test
+    void recoveryIsTimedFromTheFirstFailure() {
+        StreamRecovery r = recovery(8);
+        r.onSuccess(0);
+        assertEquals(-1, r.onSuccess(500));
+        r.onFailure(StreamRecovery.Failure.TRANSIENT, "timeout", 1_000);
+        r.onFailure(StreamRecovery.Failure.TRANSIENT, "timeout", 3_000);
+        assertEquals(4_000, r.onSuccess(5_000));
+
+        StreamRecovery.Status s = r.status();
+        assertEquals(1, s.recoveries());
+        assertEquals(4_000, s.lastRecoveryMs());
+        assertEquals(2, s.totalFailures());
+        assertEquals(0, s.consecutiveFailures());
+    }
+}